@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo;
+
+import java.util.Objects;
+
+import static ch.netzwerg.paleo.ColumnIds.*;
+
+/**
+ * Describes how the rows of each group are aggregated by a group-by (e.g.
+ * {@link DataFrame#groupBy(CategoryColumnId, Aggregation...)}). Aggregations skip missing values: the minimum, maximum
+ * or mean of a group without any values is missing, its sum and count are <code>0</code>.
+ */
+public final class Aggregation {
+
+    private enum Type {
+        COUNT, SUM, MIN, MAX, MEAN
+    }
+
+    private final Type type;
+    private final ColumnId columnId; // null for row counts
+    private final String name;
+
+    private Aggregation(Type type, ColumnId columnId, String name) {
+        this.type = type;
+        this.columnId = columnId;
+        this.name = Objects.requireNonNull(name, "name is null");
+    }
+
+    /**
+     * Counts the rows of each group (into an Int column named <code>count</code>).
+     */
+    public static Aggregation count() {
+        return new Aggregation(Type.COUNT, null, "count");
+    }
+
+    /**
+     * Counts the non-missing values of the given column per group (into an Int column named e.g.
+     * <code>count(height)</code>).
+     */
+    public static Aggregation count(ColumnId columnId) {
+        return of(Type.COUNT, columnId);
+    }
+
+    /**
+     * Sums up the values of the given column per group (into a Long column for Int and Long columns, into a Double
+     * column for Double columns).
+     */
+    public static Aggregation sum(ColumnId columnId) {
+        return of(Type.SUM, columnId);
+    }
+
+    public static Aggregation min(ColumnId columnId) {
+        return of(Type.MIN, columnId);
+    }
+
+    public static Aggregation max(ColumnId columnId) {
+        return of(Type.MAX, columnId);
+    }
+
+    /**
+     * Averages the values of the given column per group (into a Double column).
+     */
+    public static Aggregation mean(ColumnId columnId) {
+        return of(Type.MEAN, columnId);
+    }
+
+    private static Aggregation of(Type type, ColumnId columnId) {
+        Objects.requireNonNull(columnId, "columnId is null");
+        String name = String.format("%s(%s)", type.name().toLowerCase(), columnId.getName());
+        return new Aggregation(type, columnId, name);
+    }
+
+    /**
+     * Returns an aggregation which names its result column as given (instead of e.g. <code>sum(height)</code>).
+     */
+    public Aggregation as(String name) {
+        return new Aggregation(type, columnId, name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Aggregates the rows of the given data frame into a column with one row per group.
+     */
+    Column<?> aggregate(DataFrame dataFrame, int[] groupIds, int groupCount) {
+        if (columnId == null) {
+            int[] counts = new int[groupCount];
+            for (int groupId : groupIds) {
+                counts[groupId]++;
+            }
+            return IntColumn.ofAll(IntColumnId.of(name), counts);
+        }
+        Column<?> column = dataFrame.getColumn(columnId);
+        if (column instanceof IntColumn) {
+            return aggregate((IntColumn) column, groupIds, groupCount);
+        } else if (column instanceof LongColumn) {
+            return aggregate((LongColumn) column, groupIds, groupCount);
+        } else if (column instanceof DoubleColumn) {
+            return aggregate((DoubleColumn) column, groupIds, groupCount);
+        }
+        String msg = String.format("Cannot aggregate %s column '%s' (only Int, Long and Double columns)", columnId.getType().getDescription(), columnId.getName());
+        throw new IllegalArgumentException(msg);
+    }
+
+    private Column<?> aggregate(IntColumn column, int[] groupIds, int groupCount) {
+        if (type == Type.SUM) {
+            return LongColumn.ofAll(LongColumnId.of(name), column.sumByGroup(groupIds, groupCount));
+        }
+        int[] counts = column.countByGroup(groupIds, groupCount);
+        switch (type) {
+            case COUNT:
+                return IntColumn.ofAll(IntColumnId.of(name), counts);
+            case MIN:
+                return intColumn(column.minByGroup(groupIds, groupCount), counts);
+            case MAX:
+                return intColumn(column.maxByGroup(groupIds, groupCount), counts);
+            default:
+                return meanColumn(column.sumByGroup(groupIds, groupCount), counts);
+        }
+    }
+
+    private Column<?> aggregate(LongColumn column, int[] groupIds, int groupCount) {
+        if (type == Type.SUM) {
+            return LongColumn.ofAll(LongColumnId.of(name), column.sumByGroup(groupIds, groupCount));
+        }
+        int[] counts = column.countByGroup(groupIds, groupCount);
+        switch (type) {
+            case COUNT:
+                return IntColumn.ofAll(IntColumnId.of(name), counts);
+            case MIN:
+                return longColumn(column.minByGroup(groupIds, groupCount), counts);
+            case MAX:
+                return longColumn(column.maxByGroup(groupIds, groupCount), counts);
+            default:
+                return meanColumn(column.sumByGroup(groupIds, groupCount), counts);
+        }
+    }
+
+    private Column<?> aggregate(DoubleColumn column, int[] groupIds, int groupCount) {
+        if (type == Type.SUM) {
+            return DoubleColumn.ofAll(DoubleColumnId.of(name), column.sumByGroup(groupIds, groupCount));
+        }
+        int[] counts = column.countByGroup(groupIds, groupCount);
+        switch (type) {
+            case COUNT:
+                return IntColumn.ofAll(IntColumnId.of(name), counts);
+            case MIN:
+                return doubleColumn(column.minByGroup(groupIds, groupCount), counts);
+            case MAX:
+                return doubleColumn(column.maxByGroup(groupIds, groupCount), counts);
+            default:
+                double[] sums = column.sumByGroup(groupIds, groupCount);
+                for (int group = 0; group < sums.length; group++) {
+                    sums[group] /= counts[group];
+                }
+                return doubleColumn(sums, counts);
+        }
+    }
+
+    private IntColumn intColumn(int[] values, int[] counts) {
+        IntColumn.Builder builder = IntColumn.builder(IntColumnId.of(name), values.length);
+        for (int group = 0; group < values.length; group++) {
+            if (counts[group] == 0) {
+                builder.addNull();
+            } else {
+                builder.add(values[group]);
+            }
+        }
+        return builder.build();
+    }
+
+    private LongColumn longColumn(long[] values, int[] counts) {
+        LongColumn.Builder builder = LongColumn.builder(LongColumnId.of(name), values.length);
+        for (int group = 0; group < values.length; group++) {
+            if (counts[group] == 0) {
+                builder.addNull();
+            } else {
+                builder.add(values[group]);
+            }
+        }
+        return builder.build();
+    }
+
+    private DoubleColumn doubleColumn(double[] values, int[] counts) {
+        DoubleColumn.Builder builder = DoubleColumn.builder(DoubleColumnId.of(name), values.length);
+        for (int group = 0; group < values.length; group++) {
+            if (counts[group] == 0) {
+                builder.addNull();
+            } else {
+                builder.add(values[group]);
+            }
+        }
+        return builder.build();
+    }
+
+    private DoubleColumn meanColumn(long[] sums, int[] counts) {
+        DoubleColumn.Builder builder = DoubleColumn.builder(DoubleColumnId.of(name), sums.length);
+        for (int group = 0; group < sums.length; group++) {
+            if (counts[group] == 0) {
+                builder.addNull();
+            } else {
+                builder.add((double) sums[group] / counts[group]);
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
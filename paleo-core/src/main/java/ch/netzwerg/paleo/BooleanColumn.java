@@ -18,6 +18,7 @@ package ch.netzwerg.paleo;
 
 import ch.netzwerg.paleo.ColumnIds.BooleanColumnId;
 import ch.netzwerg.paleo.impl.MetaDataBuilder;
+import io.vavr.collection.LinkedHashMap;
 import io.vavr.collection.Map;
 import io.vavr.collection.Stream;
 
@@ -28,13 +29,17 @@ public final class BooleanColumn implements Column<BooleanColumnId> {
 
     private final BooleanColumnId id;
     private final int rowCount;
+    private final int offset; // index of the first row in values/nulls (which may be shared with other columns)
     private final BitSet values;
+    private final BitSet nulls; // null if there are no missing values
     private final Map<String, String> metaData;
 
-    private BooleanColumn(BooleanColumnId id, int rowCount, BitSet values, Map<String, String> metaData) {
+    private BooleanColumn(BooleanColumnId id, int rowCount, int offset, BitSet values, BitSet nulls, Map<String, String> metaData) {
         this.id = id;
         this.rowCount = rowCount;
-        this.values = (BitSet) values.clone();
+        this.offset = offset;
+        this.values = values;
+        this.nulls = nulls;
         this.metaData = metaData;
     }
 
@@ -54,6 +59,13 @@ public final class BooleanColumn implements Column<BooleanColumnId> {
         return new Builder(id);
     }
 
+    /**
+     * Wraps the given bits (without copying them) as a column without missing values, e.g. a mask computed by a query.
+     */
+    static BooleanColumn ofBits(BooleanColumnId id, int rowCount, BitSet values) {
+        return new BooleanColumn(id, rowCount, 0, values, null, LinkedHashMap.empty());
+    }
+
     @Override
     public BooleanColumnId getId() {
         return id;
@@ -69,12 +81,164 @@ public final class BooleanColumn implements Column<BooleanColumnId> {
         return metaData;
     }
 
+    /**
+     * Returns the value at the given row (<code>false</code> for missing values, see {@link #isNull(int)}).
+     */
     public boolean getValueAt(int rowIndex) {
-        return values.get(rowIndex);
+        Checks.checkRowIndex(rowIndex, rowCount);
+        return values.get(offset + rowIndex);
+    }
+
+    public boolean isNull(int rowIndex) {
+        Checks.checkRowIndex(rowIndex, rowCount);
+        return nulls != null && nulls.get(offset + rowIndex);
+    }
+
+    public int getNullCount() {
+        return nulls == null ? 0 : count(nulls);
+    }
+
+    /**
+     * Counts the rows whose value is <code>true</code>.
+     */
+    public int cardinality() {
+        return count(values);
+    }
+
+    /**
+     * Counts the set bits of this column's rows in place (the given set may be shared with other columns).
+     */
+    private int count(BitSet set) {
+        if (offset == 0 && set.length() <= rowCount) {
+            return set.cardinality();
+        }
+        int count = 0;
+        int end = offset + rowCount;
+        for (int i = set.nextSetBit(offset); i >= 0 && i < end; i = set.nextSetBit(i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the first row at or after the given one whose value is <code>true</code> (or <code>-1</code> if there is
+     * no such row). Iterate over all <code>true</code> rows with
+     * <code>for (int i = column.nextSetBit(0); i &gt;= 0; i = column.nextSetBit(i + 1))</code>.
+     */
+    public int nextSetBit(int fromRowIndex) {
+        if (fromRowIndex < 0) {
+            throw new IndexOutOfBoundsException("Row index must not be negative: " + fromRowIndex);
+        }
+        if (fromRowIndex >= rowCount) {
+            return -1;
+        }
+        int index = values.nextSetBit(offset + fromRowIndex);
+        return index < 0 || index >= offset + rowCount ? -1 : index - offset;
+    }
+
+    /**
+     * Returns the row-wise conjunction with the given column (which must have the same number of rows). Like all
+     * logical operations, this works on whole words of 64 rows at a time. A row of the result is missing if it is
+     * missing in either column.
+     */
+    public BooleanColumn and(BooleanColumn other) {
+        BooleanColumn aligned = other.alignedTo(this);
+        BitSet result = bits(values);
+        result.and(aligned.values);
+        return combine(aligned, result);
+    }
+
+    /**
+     * Returns the row-wise disjunction with the given column (see {@link #and(BooleanColumn)}).
+     */
+    public BooleanColumn or(BooleanColumn other) {
+        BooleanColumn aligned = other.alignedTo(this);
+        BitSet result = bits(values);
+        result.or(aligned.values);
+        return combine(aligned, result);
+    }
+
+    /**
+     * Returns the row-wise exclusive disjunction with the given column (see {@link #and(BooleanColumn)}).
+     */
+    public BooleanColumn xor(BooleanColumn other) {
+        BooleanColumn aligned = other.alignedTo(this);
+        BitSet result = bits(values);
+        result.xor(aligned.values);
+        return combine(aligned, result);
+    }
+
+    /**
+     * Returns the row-wise negation (missing values stay missing).
+     */
+    public BooleanColumn not() {
+        BitSet result = bits(values);
+        result.flip(0, rowCount);
+        BitSet resultNulls = nulls == null ? null : bits(nulls);
+        if (resultNulls != null) {
+            result.andNot(resultNulls);
+        }
+        return new BooleanColumn(id, rowCount, 0, result, resultNulls, metaData);
+    }
+
+    /**
+     * Returns a column whose bits are exactly the rows of this column (i.e. start at bit 0 and end at the row count),
+     * checking that the given column has the same number of rows.
+     */
+    private BooleanColumn alignedTo(BooleanColumn other) {
+        if (rowCount != other.rowCount) {
+            throw new IllegalArgumentException(String.format("Row counts of '%s' and '%s' differ: %d vs. %d", other.id.getName(), id.getName(), other.rowCount, rowCount));
+        }
+        boolean aligned = offset == 0 && values.length() <= rowCount && (nulls == null || nulls.length() <= rowCount);
+        return aligned ? this : new BooleanColumn(id, rowCount, 0, bits(values), nulls == null ? null : bits(nulls), metaData);
+    }
+
+    private BooleanColumn combine(BooleanColumn aligned, BitSet result) {
+        BitSet resultNulls = null;
+        if (nulls != null || aligned.nulls != null) {
+            resultNulls = nulls == null ? new BitSet() : bits(nulls);
+            if (aligned.nulls != null) {
+                resultNulls.or(aligned.nulls);
+            }
+            result.andNot(resultNulls); // missing values are stored as false
+        }
+        return new BooleanColumn(id, rowCount, 0, result, resultNulls, metaData);
+    }
+
+    /**
+     * Copies the bits of this column's rows (starting at bit 0).
+     */
+    private BitSet bits(BitSet set) {
+        return set.get(offset, offset + rowCount);
     }
 
+    /**
+     * Streams all values (<code>null</code> for missing values).
+     */
     public Stream<Boolean> valueStream() {
-        return Stream.range(0, rowCount).map(values::get);
+        return Stream.range(0, rowCount).map(i -> isNull(i) ? null : getValueAt(i));
+    }
+
+    /**
+     * Returns a view which shares the bits of this column.
+     */
+    @Override
+    public BooleanColumn slice(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, rowCount);
+        return new BooleanColumn(id, toRowIndex - fromRowIndex, offset + fromRowIndex, values, nulls, metaData);
+    }
+
+    @Override
+    public BooleanColumn gather(int[] rowIndexes) {
+        Builder builder = builder(id).putAllMetaData(metaData);
+        for (int rowIndex : rowIndexes) {
+            if (rowIndex == -1 || isNull(rowIndex)) {
+                builder.addNull();
+            } else {
+                builder.add(getValueAt(rowIndex));
+            }
+        }
+        return builder.build();
     }
 
     public static final class Builder implements Column.Builder<Boolean, BooleanColumn> {
@@ -82,6 +246,7 @@ public final class BooleanColumn implements Column<BooleanColumnId> {
         private final BooleanColumnId id;
         private final AtomicInteger rowIndex;
         private final BitSet values;
+        private BitSet nulls;
         private final MetaDataBuilder metaDataBuilder;
 
         private Builder(BooleanColumnId id) {
@@ -91,12 +256,27 @@ public final class BooleanColumn implements Column<BooleanColumnId> {
             this.metaDataBuilder = new MetaDataBuilder();
         }
 
+        /**
+         * Adds the given value, or a missing value if <code>value</code> is <code>null</code>.
+         */
         @Override
         public Builder add(Boolean value) {
+            return value == null ? addNull() : add(value.booleanValue());
+        }
+
+        public Builder add(boolean value) {
             values.set(rowIndex.getAndIncrement(), value);
             return this;
         }
 
+        public Builder addNull() {
+            if (nulls == null) {
+                nulls = new BitSet();
+            }
+            nulls.set(rowIndex.getAndIncrement());
+            return this;
+        }
+
         public Builder addAll(boolean... values) {
             return addAll(Stream.ofAll(values));
         }
@@ -105,6 +285,26 @@ public final class BooleanColumn implements Column<BooleanColumnId> {
             return Stream.ofAll(values).foldLeft(this, Builder::add);
         }
 
+        /**
+         * Appends all rows of the given column (e.g. to concatenate columns which were built in chunks).
+         */
+        public Builder addAll(BooleanColumn column) {
+            int size = rowIndex.getAndAdd(column.rowCount);
+            int end = column.offset + column.rowCount;
+            for (int i = column.values.nextSetBit(column.offset); i >= 0 && i < end; i = column.values.nextSetBit(i + 1)) {
+                values.set(size + i - column.offset);
+            }
+            if (column.nulls != null) {
+                for (int i = column.nulls.nextSetBit(column.offset); i >= 0 && i < end; i = column.nulls.nextSetBit(i + 1)) {
+                    if (nulls == null) {
+                        nulls = new BitSet();
+                    }
+                    nulls.set(size + i - column.offset);
+                }
+            }
+            return this;
+        }
+
         @Override
         public Builder putMetaData(String key, String value) {
             metaDataBuilder.putMetaData(key, value);
@@ -119,7 +319,9 @@ public final class BooleanColumn implements Column<BooleanColumnId> {
 
         @Override
         public BooleanColumn build() {
-            return new BooleanColumn(id, rowIndex.get(), values, metaDataBuilder.build());
+            BitSet builtValues = (BitSet) values.clone();
+            BitSet builtNulls = nulls == null ? null : (BitSet) nulls.clone();
+            return new BooleanColumn(id, rowIndex.get(), 0, builtValues, builtNulls, metaDataBuilder.build());
         }
 
     }
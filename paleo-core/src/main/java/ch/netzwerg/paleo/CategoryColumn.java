@@ -18,26 +18,60 @@ package ch.netzwerg.paleo;
 
 import ch.netzwerg.paleo.ColumnIds.CategoryColumnId;
 import ch.netzwerg.paleo.impl.MetaDataBuilder;
+import io.vavr.Lazy;
+import io.vavr.Tuple;
 import io.vavr.collection.Array;
+import io.vavr.collection.LinkedHashMap;
 import io.vavr.collection.Map;
 import io.vavr.collection.Set;
 import io.vavr.collection.Stream;
+import io.vavr.control.Option;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.function.IntConsumer;
 
+/**
+ * Dictionary-encodes its values: each row stores the code (i.e. index) of its category. Codes are kept in the
+ * narrowest primitive array able to hold them (<code>byte[]</code>, <code>short[]</code>, or <code>int[]</code>).
+ */
 public final class CategoryColumn implements Column<CategoryColumnId> {
 
+    private static final int MAX_BYTE_CODES = 1 << Byte.SIZE;
+    private static final int MAX_SHORT_CODES = 1 << Short.SIZE;
+
     private final CategoryColumnId id;
     private final Array<String> categories;
-    private final Array<Integer> categoryIndexPerRowIndex;
+    private final boolean allCategoriesUsed; // false for views, which may only contain a subset of all categories
+    private final int offset; // index of the first row in the code array (which may be shared with other columns)
+    private final int rowCount;
+    // exactly one of the following code arrays is non-null
+    private final byte[] byteCodes;
+    private final short[] shortCodes;
+    private final int[] intCodes;
     private final Map<String, String> metaData;
+    private final Lazy<int[]> codeCounts; // counted by the builder (or on first use for views)
+    private final Lazy<Set<String>> usedCategories;
+    private final Lazy<ColumnStatistics<String>> statistics;
+    private final Lazy<java.util.Map<String, Integer>> codeByCategory;
+    private final Lazy<RowBitmap[]> rowsByCode; // inverted index, built on first use (see rowIndexes)
 
-    private CategoryColumn(CategoryColumnId id, Array<String> categories, Array<Integer> categoryIndexPerRowIndex, Map<String, String> metaData) {
+    private CategoryColumn(CategoryColumnId id, Array<String> categories, boolean allCategoriesUsed, int offset, int rowCount, byte[] byteCodes, short[] shortCodes, int[] intCodes, int[] codeCounts, Map<String, String> metaData) {
         this.id = id;
         this.categories = categories;
-        this.categoryIndexPerRowIndex = categoryIndexPerRowIndex;
+        this.allCategoriesUsed = allCategoriesUsed;
+        this.offset = offset;
+        this.rowCount = rowCount;
+        this.byteCodes = byteCodes;
+        this.shortCodes = shortCodes;
+        this.intCodes = intCodes;
         this.metaData = metaData;
+        this.codeCounts = codeCounts == null ? Lazy.of(() -> countCodes(0, rowCount)) : Lazy.of(() -> codeCounts);
+        this.usedCategories = Lazy.of(this::collectUsedCategories);
+        this.statistics = Lazy.of(this::computeStatistics);
+        this.codeByCategory = Lazy.of(this::indexCategories);
+        this.rowsByCode = Lazy.of(this::buildIndex);
     }
 
     public static CategoryColumn of(CategoryColumnId id, String value) {
@@ -63,7 +97,7 @@ public final class CategoryColumn implements Column<CategoryColumnId> {
 
     @Override
     public int getRowCount() {
-        return categoryIndexPerRowIndex.length();
+        return rowCount;
     }
 
     @Override
@@ -72,11 +106,250 @@ public final class CategoryColumn implements Column<CategoryColumnId> {
     }
 
     public String getValueAt(int rowIndex) {
-        return categories.get(categoryIndexPerRowIndex.get(rowIndex));
+        return categories.get(getCodeAt(rowIndex));
+    }
+
+    /**
+     * Returns the code of the category at the given row, i.e. an index in <code>[0, categoryCount)</code>.
+     */
+    public int getCodeAt(int rowIndex) {
+        Checks.checkRowIndex(rowIndex, rowCount);
+        int index = offset + rowIndex;
+        if (byteCodes != null) {
+            return Byte.toUnsignedInt(byteCodes[index]);
+        } else if (shortCodes != null) {
+            return Short.toUnsignedInt(shortCodes[index]);
+        } else {
+            return intCodes[index];
+        }
+    }
+
+    /**
+     * Returns the category with the given code (see {@link #getCodeAt(int)}).
+     */
+    public String getCategory(int code) {
+        return categories.get(code);
+    }
+
+    /**
+     * Returns the size of the dictionary, i.e. all codes are in <code>[0, categoryCount)</code>. Views may not contain
+     * all of these categories.
+     */
+    public int getCategoryCount() {
+        return categories.length();
+    }
+
+    /**
+     * Passes the code of each row (in row order) to the given action, without boxing or bounds checks per row.
+     */
+    public void forEachCode(IntConsumer action) {
+        int from = offset;
+        int to = offset + rowCount;
+        if (byteCodes != null) {
+            for (int i = from; i < to; i++) {
+                action.accept(Byte.toUnsignedInt(byteCodes[i]));
+            }
+        } else if (shortCodes != null) {
+            for (int i = from; i < to; i++) {
+                action.accept(Short.toUnsignedInt(shortCodes[i]));
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                action.accept(intCodes[i]);
+            }
+        }
     }
 
+    /**
+     * Copies the codes of all rows into an int array (e.g. to use them as group ids).
+     */
+    int[] getCodes() {
+        int[] codes = new int[rowCount];
+        if (byteCodes != null) {
+            for (int i = 0; i < rowCount; i++) {
+                codes[i] = Byte.toUnsignedInt(byteCodes[offset + i]);
+            }
+        } else if (shortCodes != null) {
+            for (int i = 0; i < rowCount; i++) {
+                codes[i] = Short.toUnsignedInt(shortCodes[offset + i]);
+            }
+        } else {
+            System.arraycopy(intCodes, offset, codes, 0, rowCount);
+        }
+        return codes;
+    }
+
+    /**
+     * Returns the categories which occur in at least one row (computed once).
+     */
     public Set<String> getCategories() {
-        return categories.toSet();
+        return usedCategories.get();
+    }
+
+    /**
+     * Returns the null count (i.e. rows of the <code>null</code> category), minimum and maximum category (which occur in
+     * at least one row), sortedness, and exact number of distinct (non-<code>null</code>) categories of this column.
+     * Apart from sortedness, these are derived from the category counts (see {@link #getCategoryCounts()}).
+     */
+    public ColumnStatistics<String> getStatistics() {
+        return statistics.get();
+    }
+
+    /**
+     * Returns the number of rows of each category which occurs in at least one row (in code order). The counts are
+     * computed once (by the builder, or on first use for views), so this only costs a pass over the categories.
+     */
+    public Map<String, Integer> getCategoryCounts() {
+        int[] counts = codeCounts.get();
+        return LinkedHashMap.ofEntries(Stream.range(0, counts.length)
+                .filter(code -> counts[code] > 0)
+                .map(code -> Tuple.of(categories.get(code), counts[code])));
+    }
+
+    /**
+     * Returns the number of rows of each category, i.e. an array indexed by code (see {@link #getCodeAt(int)}). The
+     * counts are computed once, the returned array is a copy.
+     */
+    public int[] countCodes() {
+        return codeCounts.get().clone();
+    }
+
+    public int[] countCodes(Parallelism parallelism) {
+        return parallelism.reduce(rowCount, this::countCodes, CategoryColumn::addCounts);
+    }
+
+    private int[] countCodes(int fromRowIndex, int toRowIndex) {
+        int[] counts = new int[categories.length()];
+        int from = offset + fromRowIndex;
+        int to = offset + toRowIndex;
+        if (byteCodes != null) {
+            for (int i = from; i < to; i++) {
+                counts[Byte.toUnsignedInt(byteCodes[i])]++;
+            }
+        } else if (shortCodes != null) {
+            for (int i = from; i < to; i++) {
+                counts[Short.toUnsignedInt(shortCodes[i])]++;
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                counts[intCodes[i]]++;
+            }
+        }
+        return counts;
+    }
+
+    private static int[] addCounts(int[] counts, int[] otherCounts) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += otherCounts[i];
+        }
+        return counts;
+    }
+
+    private ColumnStatistics<String> computeStatistics() {
+        int[] counts = codeCounts.get();
+        int nullCount = 0;
+        int distinctCount = 0;
+        String min = null;
+        String max = null;
+        for (int code = 0; code < counts.length; code++) {
+            String category = categories.get(code);
+            if (counts[code] == 0) {
+                continue;
+            }
+            if (category == null) {
+                nullCount = counts[code];
+                continue;
+            }
+            distinctCount++;
+            min = min == null || category.compareTo(min) < 0 ? category : min;
+            max = max == null || category.compareTo(max) > 0 ? category : max;
+        }
+        boolean sorted = nullCount == 0;
+        for (int rowIndex = 1; sorted && rowIndex < rowCount; rowIndex++) {
+            int previousCode = getCodeAt(rowIndex - 1);
+            int code = getCodeAt(rowIndex);
+            sorted = code == previousCode || categories.get(previousCode).compareTo(categories.get(code)) <= 0;
+        }
+        return new ColumnStatistics<>(nullCount, Option.of(min), Option.of(max), sorted, distinctCount, true);
+    }
+
+    private Set<String> collectUsedCategories() {
+        if (allCategoriesUsed) {
+            return categories.toSet();
+        }
+        int[] counts = codeCounts.get();
+        return Stream.range(0, counts.length).filter(code -> counts[code] > 0).map(categories::get).toSet();
+    }
+
+    /**
+     * Returns the indexes (in ascending order) of all rows whose category is one of the given ones. Categories which do
+     * not occur match no rows.
+     * <p>
+     * Backed by an inverted index which maps each category to a compressed bitmap of its rows. The index is built on
+     * first use (in a single pass over all rows) and then shared by all subsequent lookups, i.e. repeated equality or
+     * <code>IN</code> filters just combine bitmaps instead of comparing values row by row.
+     */
+    public int[] rowIndexes(String... categories) {
+        return rows(categories).toArray();
+    }
+
+    /**
+     * Counts the rows whose category is one of the given ones, in constant time per category (based on the cached
+     * category counts, i.e. without building the row index of {@link #rowIndexes(String...)}).
+     */
+    public int countRows(String... categories) {
+        int[] counts = codeCounts.get();
+        BitSet codes = codesOf(categories);
+        int count = 0;
+        for (int code = codes.nextSetBit(0); code >= 0; code = codes.nextSetBit(code + 1)) {
+            count += counts[code];
+        }
+        return count;
+    }
+
+    RowBitmap rows(String... categories) {
+        BitSet codes = codesOf(categories);
+        if (codes.isEmpty()) {
+            return RowBitmap.EMPTY;
+        }
+        RowBitmap[] rows = rowsByCode.get();
+        return RowBitmap.or(codes.stream().mapToObj(code -> rows[code]).toArray(RowBitmap[]::new));
+    }
+
+    private BitSet codesOf(String... categories) {
+        java.util.Map<String, Integer> codes = codeByCategory.get();
+        BitSet result = new BitSet(this.categories.length());
+        for (String category : categories) {
+            Integer code = codes.get(category);
+            if (code != null) {
+                result.set(code);
+            }
+        }
+        return result;
+    }
+
+    private java.util.Map<String, Integer> indexCategories() {
+        java.util.Map<String, Integer> codes = new HashMap<>();
+        for (int code = 0; code < categories.length(); code++) {
+            codes.put(categories.get(code), code);
+        }
+        return codes;
+    }
+
+    private RowBitmap[] buildIndex() {
+        RowBitmap.Builder[] builders = new RowBitmap.Builder[categories.length()];
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            int code = getCodeAt(rowIndex);
+            if (builders[code] == null) {
+                builders[code] = RowBitmap.builder();
+            }
+            builders[code].add(rowIndex);
+        }
+        RowBitmap[] rows = new RowBitmap[builders.length];
+        for (int code = 0; code < builders.length; code++) {
+            rows[code] = builders[code] == null ? RowBitmap.EMPTY : builders[code].build();
+        }
+        return rows;
     }
 
     /**
@@ -86,30 +359,77 @@ public final class CategoryColumn implements Column<CategoryColumnId> {
         return Stream.range(0, getRowCount()).map(this::getValueAt);
     }
 
+    /**
+     * Returns a view which shares the categories and codes of this column.
+     */
+    @Override
+    public CategoryColumn slice(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, rowCount);
+        int slicedRowCount = toRowIndex - fromRowIndex;
+        boolean slicedAllCategoriesUsed = allCategoriesUsed && slicedRowCount == rowCount;
+        int[] slicedCodeCounts = slicedRowCount == rowCount ? codeCounts.get() : null;
+        return new CategoryColumn(id, categories, slicedAllCategoriesUsed, offset + fromRowIndex, slicedRowCount, byteCodes, shortCodes, intCodes, slicedCodeCounts, metaData);
+    }
+
+    /**
+     * Copies the codes of the given rows into a new column which shares the categories of this column (missing rows,
+     * i.e. <code>-1</code> row indexes, require a new dictionary with an additional <code>null</code> category).
+     */
+    @Override
+    public CategoryColumn gather(int[] rowIndexes) {
+        if (Arrays.stream(rowIndexes).anyMatch(rowIndex -> rowIndex == -1)) {
+            Builder builder = builder(id).putAllMetaData(metaData);
+            for (int rowIndex : rowIndexes) {
+                builder.add(rowIndex == -1 ? null : getValueAt(rowIndex));
+            }
+            return builder.build();
+        }
+        int length = rowIndexes.length;
+        byte[] gatheredByteCodes = byteCodes == null ? null : new byte[length];
+        short[] gatheredShortCodes = shortCodes == null ? null : new short[length];
+        int[] gatheredIntCodes = intCodes == null ? null : new int[length];
+        for (int i = 0; i < length; i++) {
+            Checks.checkRowIndex(rowIndexes[i], rowCount);
+            int index = offset + rowIndexes[i];
+            if (gatheredByteCodes != null) {
+                gatheredByteCodes[i] = byteCodes[index];
+            } else if (gatheredShortCodes != null) {
+                gatheredShortCodes[i] = shortCodes[index];
+            } else {
+                gatheredIntCodes[i] = intCodes[index];
+            }
+        }
+        return new CategoryColumn(id, categories, false, 0, length, gatheredByteCodes, gatheredShortCodes, gatheredIntCodes, null, metaData);
+    }
+
     public static final class Builder implements Column.Builder<String, CategoryColumn> {
 
-        private static final Integer DEFAULT_INDEX = -1;
+        private static final int DEFAULT_CAPACITY = 16;
 
         private final CategoryColumnId id;
         private final java.util.Map<String, Integer> indexByCategory;
-        private final java.util.List<Integer> indexPerRow;
+        private int[] codes;
+        private int size;
         private final MetaDataBuilder metaDataBuilder;
 
         private Builder(CategoryColumnId id) {
             this.id = id;
-            this.indexByCategory = new LinkedHashMap<>();
-            this.indexPerRow = new ArrayList<>();
+            this.indexByCategory = new java.util.LinkedHashMap<>();
+            this.codes = new int[DEFAULT_CAPACITY];
             this.metaDataBuilder = new MetaDataBuilder();
         }
 
         @Override
         public Builder add(String value) {
-            Integer categoryIndex = indexByCategory.getOrDefault(value, DEFAULT_INDEX);
-            if (categoryIndex < 0) {
-                indexByCategory.put(value, indexByCategory.size());
-                categoryIndex = indexByCategory.size() - 1;
+            Integer categoryIndex = indexByCategory.get(value);
+            if (categoryIndex == null) {
+                categoryIndex = indexByCategory.size();
+                indexByCategory.put(value, categoryIndex);
+            }
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, codes.length + (codes.length >> 1));
             }
-            indexPerRow.add(categoryIndex);
+            codes[size++] = categoryIndex;
             return this;
         }
 
@@ -121,6 +441,33 @@ public final class CategoryColumn implements Column<CategoryColumnId> {
             return Stream.ofAll(values).foldLeft(this, Builder::add);
         }
 
+        /**
+         * Appends all rows of the given column (e.g. to concatenate columns which were built in chunks). The
+         * dictionaries are merged, i.e. each category of the given column is looked up once, and its codes are remapped
+         * row by row.
+         */
+        public Builder addAll(CategoryColumn column) {
+            int[] counts = column.codeCounts.get();
+            int[] codeMapping = new int[counts.length];
+            for (int code = 0; code < codeMapping.length; code++) {
+                if (counts[code] == 0) {
+                    continue; // keeps the dictionary free of categories without rows
+                }
+                String category = column.categories.get(code);
+                Integer categoryIndex = indexByCategory.get(category);
+                if (categoryIndex == null) {
+                    categoryIndex = indexByCategory.size();
+                    indexByCategory.put(category, categoryIndex);
+                }
+                codeMapping[code] = categoryIndex;
+            }
+            if (size + column.rowCount > codes.length) {
+                codes = Arrays.copyOf(codes, Math.max(size + column.rowCount, codes.length + (codes.length >> 1)));
+            }
+            column.forEachCode(code -> codes[size++] = codeMapping[code]);
+            return this;
+        }
+
         @Override
         public Builder putMetaData(String key, String value) {
             metaDataBuilder.putMetaData(key, value);
@@ -135,7 +482,26 @@ public final class CategoryColumn implements Column<CategoryColumnId> {
 
         public CategoryColumn build() {
             Array<String> categories = Array.ofAll(indexByCategory.keySet());
-            return new CategoryColumn(id, categories, Array.ofAll(indexPerRow), metaDataBuilder.build());
+            Map<String, String> metaData = metaDataBuilder.build();
+            int[] codeCounts = new int[categories.length()];
+            for (int i = 0; i < size; i++) {
+                codeCounts[codes[i]]++;
+            }
+            if (categories.length() <= MAX_BYTE_CODES) {
+                byte[] byteCodes = new byte[size];
+                for (int i = 0; i < size; i++) {
+                    byteCodes[i] = (byte) codes[i];
+                }
+                return new CategoryColumn(id, categories, true, 0, size, byteCodes, null, null, codeCounts, metaData);
+            } else if (categories.length() <= MAX_SHORT_CODES) {
+                short[] shortCodes = new short[size];
+                for (int i = 0; i < size; i++) {
+                    shortCodes[i] = (short) codes[i];
+                }
+                return new CategoryColumn(id, categories, true, 0, size, null, shortCodes, null, codeCounts, metaData);
+            } else {
+                return new CategoryColumn(id, categories, true, 0, size, null, null, Arrays.copyOf(codes, size), codeCounts, metaData);
+            }
         }
 
     }
@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ch.netzwerg.paleo;
+
+final class Checks {
+
+    private Checks() {
+    }
+
+    static void checkRowIndex(int rowIndex, int rowCount) {
+        if (rowIndex < 0 || rowIndex >= rowCount) {
+            throw new IndexOutOfBoundsException(String.format("Row index %d out of bounds [0, %d)", rowIndex, rowCount));
+        }
+    }
+
+    /**
+     * Ensures that <code>[fromRowIndex, toRowIndex)</code> is a valid row range of a column with the given row count.
+     */
+    static void checkRowRange(int fromRowIndex, int toRowIndex, int rowCount) {
+        if (fromRowIndex < 0 || toRowIndex > rowCount || fromRowIndex > toRowIndex) {
+            String msg = String.format("Invalid row range [%d, %d) for row count %d", fromRowIndex, toRowIndex, rowCount);
+            throw new IndexOutOfBoundsException(msg);
+        }
+    }
+
+    static UnsupportedOperationException unsupported(Column<?> column, String operation) {
+        return new UnsupportedOperationException(String.format("Column '%s' does not support %s", column.getId().getName(), operation));
+    }
+
+}
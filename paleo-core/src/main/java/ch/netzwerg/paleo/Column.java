@@ -26,6 +26,28 @@ public interface Column<T extends ColumnId> {
 
     Map<String, String> getMetaData();
 
+    /**
+     * Returns the rows <code>[fromRowIndex, toRowIndex)</code> as a new column. Wherever possible, the returned column
+     * is a view which shares the backing data of this column (i.e. no values are copied).
+     * <p>
+     * All built-in columns implement this; custom columns must override it to be sliced or filtered in a
+     * {@link DataFrame} (the default implementation throws an {@link UnsupportedOperationException}).
+     */
+    default Column<T> slice(int fromRowIndex, int toRowIndex) {
+        throw Checks.unsupported(this, "slice");
+    }
+
+    /**
+     * Copies the given rows (in the given order, possibly repeated) into a new dense column. A row index of
+     * <code>-1</code> yields a missing value (e.g. for the unmatched rows of a left join).
+     * <p>
+     * All built-in columns implement this; custom columns must override it to be sorted, grouped, or joined in a
+     * {@link DataFrame} (the default implementation throws an {@link UnsupportedOperationException}).
+     */
+    default Column<T> gather(int[] rowIndexes) {
+        throw Checks.unsupported(this, "gather");
+    }
+
     interface Builder<V, C extends Column<?>> {
 
         Builder<V, C> add(V value);
@@ -14,6 +14,8 @@
 
 package ch.netzwerg.paleo;
 
+import java.util.Objects;
+
 public interface ColumnIds {
 
     final class IntColumnId extends GenericColumnId {
@@ -123,6 +125,28 @@ public interface ColumnIds {
             return type;
         }
 
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            GenericColumnId that = (GenericColumnId) o;
+            return Objects.equals(name, that.name) && Objects.equals(type, that.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(name) + Objects.hashCode(type);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%s)", name, type);
+        }
+
     }
 
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo;
+
+import io.vavr.control.Option;
+
+/**
+ * Summary of a column's contents, computed in a single pass the first time it is requested (see e.g.
+ * {@link IntColumn#getStatistics()}) and cached from then on. Queries can use it to rule out matches without touching
+ * any values, e.g. if a range lies outside <code>[min, max]</code>.
+ *
+ * @param <V> the value type of the column (for minimum and maximum)
+ */
+public final class ColumnStatistics<V> {
+
+    private final int nullCount;
+    private final Option<V> min;
+    private final Option<V> max;
+    private final boolean sorted;
+    private final long distinctCount;
+    private final boolean distinctCountExact;
+
+    ColumnStatistics(int nullCount, Option<V> min, Option<V> max, boolean sorted, long distinctCount, boolean distinctCountExact) {
+        this.nullCount = nullCount;
+        this.min = min;
+        this.max = max;
+        this.sorted = sorted;
+        this.distinctCount = distinctCount;
+        this.distinctCountExact = distinctCountExact;
+    }
+
+    public int getNullCount() {
+        return nullCount;
+    }
+
+    /**
+     * Returns the smallest non-missing value (empty if all values are missing, or if the column type has no order).
+     */
+    public Option<V> getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the largest non-missing value (empty if all values are missing, or if the column type has no order).
+     */
+    public Option<V> getMax() {
+        return max;
+    }
+
+    /**
+     * Returns <code>true</code> if no value is missing and values never decrease from one row to the next.
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Returns the number of distinct non-missing values, which is an estimate unless {@link #isDistinctCountExact()}.
+     */
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    public boolean isDistinctCountExact() {
+        return distinctCountExact;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ColumnStatistics(nullCount=%d, min=%s, max=%s, sorted=%s, distinctCount=%s%d)",
+                nullCount, min, max, sorted, distinctCountExact ? "" : "~", distinctCount);
+    }
+
+}
@@ -17,6 +17,8 @@ package ch.netzwerg.paleo;
 import io.vavr.collection.HashMap;
 import io.vavr.collection.Map;
 
+import java.util.Objects;
+
 import static ch.netzwerg.paleo.ColumnIds.*;
 import static io.vavr.Tuple.of;
 
@@ -59,6 +61,23 @@ public final class ColumnType<T extends ColumnId> {
         return TYPES_BY_DESCRIPTION.get(description).getOrElse(defaultType);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ColumnType<?> that = (ColumnType<?>) o;
+        return Objects.equals(description, that.description) && Objects.equals(idType, that.idType);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(description) + Objects.hashCode(idType);
+    }
+
     @Override
     public String toString() {
         return description;
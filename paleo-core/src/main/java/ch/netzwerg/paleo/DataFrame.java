@@ -14,25 +14,44 @@
 
 package ch.netzwerg.paleo;
 
+import io.vavr.Lazy;
+import io.vavr.Tuple2;
 import io.vavr.collection.*;
 
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntPredicate;
 
 import static ch.netzwerg.paleo.ColumnIds.*;
 
 public final class DataFrame implements Iterable<Column<?>> {
 
-    private final Array<Column<?>> columns;
+    private final Array<Column<?>> columns; // rows are resolved through the selection (if any)
     private final int rowCount;
+    private final int[] selection; // selected row indexes of the above columns (null if all rows are selected)
+    private final Array<Lazy<Column<?>>> selectedColumns; // gathered on first access (null if all rows are selected)
+    private final ColumnIndex columnIndex;
     private final Map<String, String> metaData;
 
     private DataFrame(Array<Column<?>> columns) {
-        this(columns, HashMap.empty());
+        this(columns, inferRowCount(columns), new ColumnIndex(columns), HashMap.empty());
     }
 
-    private DataFrame(Array<Column<?>> columns, Map<String, String> metaData) {
+    private DataFrame(Array<Column<?>> columns, int rowCount, ColumnIndex columnIndex, Map<String, String> metaData) {
+        this(columns, rowCount, null, null, columnIndex, metaData);
+    }
+
+    private DataFrame(Array<Column<?>> columns, int[] selection, ColumnIndex columnIndex, Map<String, String> metaData) {
+        this(columns, selection.length, selection, columns.map(c -> Lazy.<Column<?>>of(() -> c.gather(selection))), columnIndex, metaData);
+    }
+
+    private DataFrame(Array<Column<?>> columns, int rowCount, int[] selection, Array<Lazy<Column<?>>> selectedColumns, ColumnIndex columnIndex, Map<String, String> metaData) {
         this.columns = columns;
-        this.rowCount = inferRowCount(columns);
+        this.rowCount = rowCount;
+        this.selection = selection;
+        this.selectedColumns = selectedColumns;
+        this.columnIndex = columnIndex;
         this.metaData = metaData;
     }
 
@@ -78,7 +97,7 @@ public final class DataFrame implements Iterable<Column<?>> {
     }
 
     public IndexedSeq<Column<?>> getColumns() {
-        return columns;
+        return resolveColumns();
     }
 
     public IndexedSeq<String> getColumnNames() {
@@ -90,10 +109,60 @@ public final class DataFrame implements Iterable<Column<?>> {
         return idType.cast(columns.get(columnIndex).getId());
     }
 
+    /**
+     * Returns the (first) position of the given column, in constant time.
+     */
+    public int getColumnIndex(ColumnId columnId) {
+        return columnIndex.indexOf(columnId);
+    }
+
+    /**
+     * Returns the (first) position of a column with the given name, in constant time.
+     */
+    public int getColumnIndex(String columnName) {
+        return columnIndex.indexOf(columnName);
+    }
+
+    public Column<?> getColumn(int columnIndex) {
+        return resolveColumn(columnIndex);
+    }
+
+    public IntColumn getIntColumn(int columnIndex) {
+        return getTypedColumn(columnIndex, IntColumn.class);
+    }
+
+    public LongColumn getLongColumn(int columnIndex) {
+        return getTypedColumn(columnIndex, LongColumn.class);
+    }
+
+    public DoubleColumn getDoubleColumn(int columnIndex) {
+        return getTypedColumn(columnIndex, DoubleColumn.class);
+    }
+
+    public BooleanColumn getBooleanColumn(int columnIndex) {
+        return getTypedColumn(columnIndex, BooleanColumn.class);
+    }
+
+    public StringColumn getStringColumn(int columnIndex) {
+        return getTypedColumn(columnIndex, StringColumn.class);
+    }
+
+    public TimestampColumn getTimestampColumn(int columnIndex) {
+        return getTypedColumn(columnIndex, TimestampColumn.class);
+    }
+
+    public CategoryColumn getCategoryColumn(int columnIndex) {
+        return getTypedColumn(columnIndex, CategoryColumn.class);
+    }
+
     public IntColumn getColumn(IntColumnId columnId) {
         return getTypedColumn(columnId);
     }
 
+    public LongColumn getColumn(LongColumnId columnId) {
+        return getTypedColumn(columnId);
+    }
+
     public DoubleColumn getColumn(DoubleColumnId columnId) {
         return getTypedColumn(columnId);
     }
@@ -123,59 +192,323 @@ public final class DataFrame implements Iterable<Column<?>> {
     }
 
     public int getValueAt(int rowIndex, IntColumnId columnId) {
-        IntColumn column = getTypedColumn(columnId);
-        return column.getValueAt(rowIndex);
+        IntColumn column = getBaseColumn(columnId);
+        return column.getValueAt(toBaseRowIndex(rowIndex));
+    }
+
+    public long getValueAt(int rowIndex, LongColumnId columnId) {
+        LongColumn column = getBaseColumn(columnId);
+        return column.getValueAt(toBaseRowIndex(rowIndex));
     }
 
     public double getValueAt(int rowIndex, DoubleColumnId columnId) {
-        DoubleColumn column = getTypedColumn(columnId);
-        return column.getValueAt(rowIndex);
+        DoubleColumn column = getBaseColumn(columnId);
+        return column.getValueAt(toBaseRowIndex(rowIndex));
     }
 
     public boolean getValueAt(int rowIndex, BooleanColumnId columnId) {
-        BooleanColumn column = getTypedColumn(columnId);
-        return column.getValueAt(rowIndex);
+        BooleanColumn column = getBaseColumn(columnId);
+        return column.getValueAt(toBaseRowIndex(rowIndex));
     }
 
     public String getValueAt(int rowIndex, StringColumnId columnId) {
-        StringColumn column = getTypedColumn(columnId);
-        return column.getValueAt(rowIndex);
+        StringColumn column = getBaseColumn(columnId);
+        return column.getValueAt(toBaseRowIndex(rowIndex));
     }
 
     public Instant getValueAt(int rowIndex, TimestampColumnId columnId) {
-        TimestampColumn column = getTypedColumn(columnId);
-        return column.getValueAt(rowIndex);
+        TimestampColumn column = getBaseColumn(columnId);
+        return column.getValueAt(toBaseRowIndex(rowIndex));
     }
 
     public String getValueAt(int rowIndex, CategoryColumnId columnId) {
-        CategoryColumn column = getTypedColumn(columnId);
-        return column.getValueAt(rowIndex);
+        CategoryColumn column = getBaseColumn(columnId);
+        return column.getValueAt(toBaseRowIndex(rowIndex));
     }
 
     public <V, I extends GenericColumnId> V getValueAt(int rowIndex, I columnId) {
-        GenericColumn<V, I> column = getTypedColumn(columnId);
-        return column.getValueAt(rowIndex);
+        GenericColumn<V, I> column = getBaseColumn(columnId);
+        return column.getValueAt(toBaseRowIndex(rowIndex));
     }
 
     @SuppressWarnings("unchecked")
     private <T extends Column<?>> T getTypedColumn(ColumnId columnId) {
-        return (T) columns.find(c -> c.getId().equals(columnId)).getOrElseThrow(() -> {
-            String msg = String.format("Unknown column id '%s'", columnId);
+        return (T) resolveColumn(columnIndex.indexOf(columnId));
+    }
+
+    private <T extends Column<?>> T getTypedColumn(int columnIndex, Class<T> columnType) {
+        Column<?> column = resolveColumn(columnIndex);
+        if (!columnType.isInstance(column)) {
+            String msg = String.format("Column %d is a %s (not a %s)", columnIndex, column.getClass().getSimpleName(), columnType.getSimpleName());
             throw new IllegalArgumentException(msg);
-        });
+        }
+        return columnType.cast(column);
+    }
+
+    /**
+     * Resolves a column without gathering it (use with {@link #toBaseRowIndex(int)}).
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Column<?>> T getBaseColumn(ColumnId columnId) {
+        return (T) columns.get(columnIndex.indexOf(columnId));
+    }
+
+    private int toBaseRowIndex(int rowIndex) {
+        if (selection == null) {
+            return rowIndex;
+        }
+        Checks.checkRowIndex(rowIndex, rowCount);
+        return selection[rowIndex];
+    }
+
+    private Column<?> resolveColumn(int columnIndex) {
+        return selection == null ? columns.get(columnIndex) : selectedColumns.get(columnIndex).get();
+    }
+
+    private Array<Column<?>> resolveColumns() {
+        return selection == null ? columns : selectedColumns.map(Lazy::get);
     }
 
     @Override
     public Iterator<Column<?>> iterator() {
-        return columns.iterator();
+        return resolveColumns().iterator();
+    }
+
+    /**
+     * Returns the rows <code>[fromRowIndex, toRowIndex)</code> as a new data frame. All columns are views which share
+     * the backing data of this data frame's columns (see {@link Column#slice(int, int)}).
+     */
+    public DataFrame slice(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, rowCount);
+        if (selection != null) {
+            return new DataFrame(columns, Arrays.copyOfRange(selection, fromRowIndex, toRowIndex), columnIndex, metaData);
+        }
+        Array<Column<?>> slicedColumns = columns.map(c -> c.slice(fromRowIndex, toRowIndex));
+        return new DataFrame(slicedColumns, toRowIndex - fromRowIndex, columnIndex, metaData);
+    }
+
+    /**
+     * Returns the rows whose values in the given (sorted) timestamp column are within <code>[from, to)</code>, found by
+     * binary search (see {@link TimestampColumn#rangeIndexes(Instant, Instant)}). Like
+     * {@link #slice(int, int)}, no values are copied.
+     */
+    public DataFrame slice(TimestampColumnId columnId, Instant from, Instant to) {
+        Tuple2<Integer, Integer> range = getColumn(columnId).rangeIndexes(from, to);
+        return slice(range._1, range._2);
+    }
+
+    /**
+     * Returns the rows for which the given predicate (called with row indexes of this data frame) holds. No values are
+     * copied: the result is a view which resolves its rows through a selection vector (i.e. an array of selected row
+     * indexes). Filtering (or slicing) a view again just composes the selection vectors.
+     * <p>
+     * Row-wise access (e.g. {@link #getValueAt(int, IntColumnId)}) reads straight through the selection vector, whereas
+     * accessing a column of a view gathers that column into a dense column (once). Use {@link #compact()} to gather all
+     * columns at once.
+     */
+    public DataFrame filter(IntPredicate rowPredicate) {
+        int[] matches = new int[rowCount];
+        int matchCount = 0;
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            if (rowPredicate.test(rowIndex)) {
+                matches[matchCount++] = selection == null ? rowIndex : selection[rowIndex];
+            }
+        }
+        return new DataFrame(columns, Arrays.copyOf(matches, matchCount), columnIndex, metaData);
+    }
+
+    /**
+     * Returns the rows for which the given mask (with one value per row of this data frame) is <code>true</code>, e.g.
+     * a combination of predicate masks (see {@link BooleanColumn#and(BooleanColumn)}). Missing values do not match.
+     * Like {@link #filter(IntPredicate)}, the result is a view.
+     */
+    public DataFrame filter(BooleanColumn mask) {
+        if (mask.getRowCount() != rowCount) {
+            throw new IllegalArgumentException(String.format("Mask '%s' has %d rows, expected %d", mask.getId().getName(), mask.getRowCount(), rowCount));
+        }
+        int[] matches = new int[mask.cardinality()];
+        int matchCount = 0;
+        for (int rowIndex = mask.nextSetBit(0); rowIndex >= 0; rowIndex = mask.nextSetBit(rowIndex + 1)) {
+            if (!mask.isNull(rowIndex)) {
+                matches[matchCount++] = selection == null ? rowIndex : selection[rowIndex];
+            }
+        }
+        return new DataFrame(columns, Arrays.copyOf(matches, matchCount), columnIndex, metaData);
+    }
+
+    /**
+     * Returns the rows whose value in the given column is one of the given categories. Like
+     * {@link #filter(IntPredicate)}, the result is a view. Matching rows are looked up in the column's bitmap index
+     * (see {@link CategoryColumn#rowIndexes(String...)}) rather than by comparing values row by row.
+     */
+    public DataFrame filter(CategoryColumnId columnId, String... categories) {
+        RowBitmap rows = this.<CategoryColumn>getBaseColumn(columnId).rows(categories);
+        if (selection == null) {
+            return new DataFrame(columns, rows.toArray(), columnIndex, metaData);
+        }
+        int[] matches = new int[rowCount];
+        int matchCount = 0;
+        for (int baseRowIndex : selection) {
+            if (rows.contains(baseRowIndex)) {
+                matches[matchCount++] = baseRowIndex;
+            }
+        }
+        return new DataFrame(columns, Arrays.copyOf(matches, matchCount), columnIndex, metaData);
+    }
+
+    /**
+     * Returns a data frame with dense columns, i.e. materializes the selected rows of a view (see
+     * {@link #filter(IntPredicate)}). Returns this data frame if it is not a view.
+     */
+    public DataFrame compact() {
+        return selection == null ? this : new DataFrame(resolveColumns(), rowCount, columnIndex, metaData);
+    }
+
+    /**
+     * Returns <code>true</code> if this data frame is a view whose rows are resolved through a selection vector.
+     */
+    public boolean isView() {
+        return selection != null;
+    }
+
+    /**
+     * Groups the rows by the categories of the given column and aggregates each group. The result has one row per
+     * category (in dictionary order, categories without any rows are omitted): a category column with the group keys,
+     * followed by one column per aggregation.
+     * <p>
+     * Rows are assigned to groups by their category codes, i.e. grouping neither hashes nor materializes any values.
+     */
+    public DataFrame groupBy(CategoryColumnId keyColumnId, Aggregation... aggregations) {
+        CategoryColumn keyColumn = getColumn(keyColumnId);
+        int[] rowCountPerCode = keyColumn.countCodes();
+        int[] groupIdPerCode = new int[rowCountPerCode.length];
+        CategoryColumn.Builder keys = CategoryColumn.builder(keyColumnId);
+        int groupCount = 0;
+        for (int code = 0; code < rowCountPerCode.length; code++) {
+            if (rowCountPerCode[code] > 0) {
+                groupIdPerCode[code] = groupCount++;
+                keys.add(keyColumn.getCategory(code));
+            }
+        }
+        int[] groupIds = keyColumn.getCodes();
+        if (groupCount < rowCountPerCode.length) {
+            for (int rowIndex = 0; rowIndex < groupIds.length; rowIndex++) {
+                groupIds[rowIndex] = groupIdPerCode[groupIds[rowIndex]];
+            }
+        }
+        return aggregate(Array.of(keys.build()), groupIds, groupCount, aggregations);
+    }
+
+    /**
+     * Groups the rows by the combined values of the given key columns (Int, Long, String, Category or Boolean columns,
+     * missing values form groups of their own) and aggregates each group. The result has one row per distinct key (in
+     * order of first occurrence): one column per key column, followed by one column per aggregation.
+     * <p>
+     * Keys are hashed once (in a primitive open-addressing hash table), each aggregation is then computed by a single
+     * loop over its column.
+     */
+    public DataFrame groupBy(Iterable<? extends ColumnId> keyColumnIds, Aggregation... aggregations) {
+        Array<Column<?>> keyColumns = Array.ofAll(keyColumnIds).map(this::getColumn);
+        Grouping grouping = Grouping.of(keyColumns, rowCount);
+        int[] firstRowIndexes = grouping.getFirstRowIndexes();
+        Array<Column<?>> keys = keyColumns.map(c -> c.gather(firstRowIndexes));
+        return aggregate(keys, grouping.getGroupIds(), grouping.getGroupCount(), aggregations);
+    }
+
+    /**
+     * Joins this (left) data frame with the given (right) one on equal keys (Int, Long, String or Category columns of
+     * the same type; missing keys never match). The result contains all columns of this data frame, followed by all
+     * columns of the other one except its key column (columns with ids which also occur in this data frame are only
+     * accessible by position).
+     * <p>
+     * A primitive hash table is built over the keys of the smaller data frame for inner joins, and over the keys of
+     * the right data frame for left joins. Result rows follow the order of the probed data frame (i.e. of this data
+     * frame for left joins) and are gathered into new columns.
+     */
+    public DataFrame join(DataFrame other, ColumnId keyColumnId, ColumnId otherKeyColumnId, JoinType type) {
+        int[][] matches = HashJoin.match(getColumn(keyColumnId), other.getColumn(otherKeyColumnId), type);
+        int[] rowIndexes = matches[0];
+        int[] otherRowIndexes = matches[1];
+        Array<Column<?>> joinedColumns = resolveColumns().map(c -> c.gather(rowIndexes));
+        Array<Column<?>> otherJoinedColumns = other.resolveColumns()
+                .filter(c -> !c.getId().equals(otherKeyColumnId))
+                .map(c -> c.gather(otherRowIndexes));
+        return new DataFrame(joinedColumns.appendAll(otherJoinedColumns));
+    }
+
+    public DataFrame sortBy(ColumnId columnId, SortOrder order) {
+        return sortBy(Array.of(columnId), order);
+    }
+
+    /**
+     * Sorts the rows by the given key columns (the first one being the most significant, missing values last). The
+     * sort is stable, i.e. rows with equal keys keep their relative order.
+     * <p>
+     * The sort computes a permutation of row indexes: Int, Long, Double, Boolean, Timestamp and Category keys (the
+     * latter in the lexicographic order of their categories) by LSD radix sort, String keys by merge sort on their raw
+     * bytes. The result is a view through this permutation, i.e. each column is gathered once on first access (see
+     * {@link #filter(IntPredicate)}).
+     */
+    public DataFrame sortBy(Iterable<? extends ColumnId> columnIds, SortOrder order) {
+        Array<Column<?>> keyColumns = Array.ofAll(columnIds).map(this::getColumn);
+        int[] permutation = Sorting.permutation(keyColumns, rowCount, order == SortOrder.DESCENDING);
+        if (selection != null) {
+            for (int i = 0; i < permutation.length; i++) {
+                permutation[i] = selection[permutation[i]];
+            }
+        }
+        return new DataFrame(columns, permutation, columnIndex, metaData);
+    }
+
+    private DataFrame aggregate(Array<Column<?>> keyColumns, int[] groupIds, int groupCount, Aggregation... aggregations) {
+        Array<Column<?>> aggregateColumns = Array.of(aggregations).map(a -> a.aggregate(this, groupIds, groupCount));
+        return new DataFrame(keyColumns.appendAll(aggregateColumns));
     }
 
     public DataFrame withMetaData(Map<String, String> metaData) {
-        return new DataFrame(columns, metaData);
+        return new DataFrame(columns, rowCount, selection, selectedColumns, columnIndex, metaData);
     }
 
     public Map<String, String> getMetaData() {
         return metaData;
     }
 
-}
\ No newline at end of file
+    /**
+     * Hash-based lookup of column positions by id and by name (first occurrence wins).
+     */
+    private static final class ColumnIndex {
+
+        private final java.util.Map<ColumnId, Integer> indexById;
+        private final java.util.Map<String, Integer> indexByName;
+
+        private ColumnIndex(IndexedSeq<Column<?>> columns) {
+            this.indexById = new java.util.HashMap<>(columns.length() * 2);
+            this.indexByName = new java.util.HashMap<>(columns.length() * 2);
+            for (int i = 0; i < columns.length(); i++) {
+                ColumnId id = columns.get(i).getId();
+                indexById.putIfAbsent(id, i);
+                indexByName.putIfAbsent(id.getName(), i);
+            }
+        }
+
+        private int indexOf(ColumnId columnId) {
+            Integer index = indexById.get(Objects.requireNonNull(columnId, "columnId is null"));
+            if (index == null) {
+                String msg = String.format("Unknown column id '%s'", columnId);
+                throw new IllegalArgumentException(msg);
+            }
+            return index;
+        }
+
+        private int indexOf(String columnName) {
+            Integer index = indexByName.get(columnName);
+            if (index == null) {
+                String msg = String.format("Unknown column name '%s'", columnName);
+                throw new IllegalArgumentException(msg);
+            }
+            return index;
+        }
+
+    }
+
+}
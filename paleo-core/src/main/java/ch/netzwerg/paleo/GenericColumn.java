@@ -17,9 +17,11 @@
 package ch.netzwerg.paleo;
 
 import io.vavr.collection.Array;
+import io.vavr.collection.IndexedSeq;
 import io.vavr.collection.LinkedHashMap;
 import io.vavr.collection.Map;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 public final class GenericColumn<V, I extends ColumnIds.GenericColumnId> extends AbstractColumn<V, I> {
@@ -49,4 +51,19 @@ public final class GenericColumn<V, I extends ColumnIds.GenericColumnId> extends
         return new GenericColumn<>(id, Array.ofAll(values), Objects.requireNonNull(metaData, "metaData is null"));
     }
 
-}
\ No newline at end of file
+    /**
+     * Returns the given rows as a new column (the value references are copied, the values themselves are shared).
+     */
+    @Override
+    public GenericColumn<V, I> slice(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, getRowCount());
+        return new GenericColumn<>(getId(), Array.ofAll(getValues().subSequence(fromRowIndex, toRowIndex)), getMetaData());
+    }
+
+    @Override
+    public GenericColumn<V, I> gather(int[] rowIndexes) {
+        IndexedSeq<V> values = getValues();
+        return new GenericColumn<>(getId(), Array.ofAll(Arrays.stream(rowIndexes).mapToObj(i -> i == -1 ? null : values.get(i))), getMetaData());
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo;
+
+import io.vavr.collection.IndexedSeq;
+
+import java.util.Arrays;
+
+/**
+ * Assigns rows to groups by the values of one or more key columns, using an open-addressing hash table on composite
+ * primitive keys (one <code>long</code> per key column, plus a bit mask of missing keys). String keys contribute the
+ * hash of their raw bytes and are compared byte-wise on hash matches, i.e. no {@link String}s are materialized. Groups
+ * are numbered in order of their first row.
+ */
+final class Grouping {
+
+    private static final int BATCH_SIZE = 1024; // rows whose keys are encoded column by column before being hashed
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Column<?>[] keyColumns;
+    private final int width; // number of key words per row (the last one is the bit mask of missing keys)
+    private final int[] groupIds;
+    private int groupCount;
+    private int[] firstRowIndexes; // indexed by group id
+    private long[] groupKeys; // key words of each group, indexed by group id * width
+    private int[] groupHashes; // indexed by group id
+    private int[] slots; // group id + 1 (0 marks an empty slot)
+
+    private Grouping(IndexedSeq<Column<?>> keyColumns, int rowCount) {
+        this.keyColumns = keyColumns.toJavaList().toArray(new Column<?>[0]);
+        this.width = this.keyColumns.length + 1;
+        this.groupIds = new int[rowCount];
+        this.firstRowIndexes = new int[INITIAL_CAPACITY];
+        this.groupKeys = new long[INITIAL_CAPACITY * width];
+        this.groupHashes = new int[INITIAL_CAPACITY];
+        this.slots = new int[INITIAL_CAPACITY * 2];
+    }
+
+    static Grouping of(IndexedSeq<Column<?>> keyColumns, int rowCount) {
+        if (keyColumns.isEmpty() || keyColumns.length() >= Long.SIZE) {
+            throw new IllegalArgumentException("Number of key columns must be in [1, 63]: " + keyColumns.length());
+        }
+        for (Column<?> column : keyColumns) {
+            if (!(column instanceof IntColumn || column instanceof LongColumn || column instanceof StringColumn ||
+                    column instanceof CategoryColumn || column instanceof BooleanColumn)) {
+                ColumnId id = column.getId();
+                String msg = String.format("Cannot group by %s column '%s' (only Int, Long, String, Category and Boolean columns)", id.getType().getDescription(), id.getName());
+                throw new IllegalArgumentException(msg);
+            }
+        }
+        Grouping grouping = new Grouping(keyColumns, rowCount);
+        grouping.assignGroups();
+        return grouping;
+    }
+
+    int[] getGroupIds() {
+        return groupIds;
+    }
+
+    int getGroupCount() {
+        return groupCount;
+    }
+
+    int[] getFirstRowIndexes() {
+        return Arrays.copyOf(firstRowIndexes, groupCount);
+    }
+
+    private void assignGroups() {
+        long[] batch = new long[BATCH_SIZE * width];
+        for (int from = 0; from < groupIds.length; from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, groupIds.length);
+            Arrays.fill(batch, 0L);
+            for (int k = 0; k < keyColumns.length; k++) {
+                encode(keyColumns[k], k, batch, from, to);
+            }
+            for (int rowIndex = from; rowIndex < to; rowIndex++) {
+                groupIds[rowIndex] = findOrInsert(batch, (rowIndex - from) * width, rowIndex);
+            }
+        }
+    }
+
+    /**
+     * Writes the key words of column <code>k</code> for rows <code>[from, to)</code> into the batch.
+     */
+    private void encode(Column<?> column, int k, long[] batch, int from, int to) {
+        int nullWord = width - 1;
+        long nullBit = 1L << k;
+        if (column instanceof IntColumn) {
+            IntColumn intColumn = (IntColumn) column;
+            for (int rowIndex = from, base = 0; rowIndex < to; rowIndex++, base += width) {
+                if (intColumn.isNull(rowIndex)) {
+                    batch[base + nullWord] |= nullBit;
+                } else {
+                    batch[base + k] = intColumn.getValueAt(rowIndex);
+                }
+            }
+        } else if (column instanceof LongColumn) {
+            LongColumn longColumn = (LongColumn) column;
+            for (int rowIndex = from, base = 0; rowIndex < to; rowIndex++, base += width) {
+                if (longColumn.isNull(rowIndex)) {
+                    batch[base + nullWord] |= nullBit;
+                } else {
+                    batch[base + k] = longColumn.getValueAt(rowIndex);
+                }
+            }
+        } else if (column instanceof StringColumn) {
+            StringColumn stringColumn = (StringColumn) column;
+            for (int rowIndex = from, base = 0; rowIndex < to; rowIndex++, base += width) {
+                if (stringColumn.isNull(rowIndex)) {
+                    batch[base + nullWord] |= nullBit;
+                } else {
+                    batch[base + k] = stringColumn.hashCodeAt(rowIndex);
+                }
+            }
+        } else if (column instanceof CategoryColumn) {
+            CategoryColumn categoryColumn = (CategoryColumn) column;
+            for (int rowIndex = from, base = 0; rowIndex < to; rowIndex++, base += width) {
+                batch[base + k] = categoryColumn.getCodeAt(rowIndex);
+            }
+        } else {
+            BooleanColumn booleanColumn = (BooleanColumn) column;
+            for (int rowIndex = from, base = 0; rowIndex < to; rowIndex++, base += width) {
+                if (booleanColumn.isNull(rowIndex)) {
+                    batch[base + nullWord] |= nullBit;
+                } else if (booleanColumn.getValueAt(rowIndex)) {
+                    batch[base + k] = 1L;
+                }
+            }
+        }
+    }
+
+    private int findOrInsert(long[] batch, int base, int rowIndex) {
+        int hash = hash(batch, base);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return insert(slot, hash, batch, base, rowIndex);
+            }
+            int groupId = entry - 1;
+            if (groupHashes[groupId] == hash && keyEquals(groupId, batch, base, rowIndex)) {
+                return groupId;
+            }
+        }
+    }
+
+    private boolean keyEquals(int groupId, long[] batch, int base, int rowIndex) {
+        int groupBase = groupId * width;
+        for (int i = 0; i < width; i++) {
+            if (groupKeys[groupBase + i] != batch[base + i]) {
+                return false;
+            }
+        }
+        // words of string keys are only hashes
+        for (Column<?> column : keyColumns) {
+            if (column instanceof StringColumn) {
+                StringColumn stringColumn = (StringColumn) column;
+                if (!stringColumn.equalsAt(rowIndex, stringColumn, firstRowIndexes[groupId])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private int insert(int slot, int hash, long[] batch, int base, int rowIndex) {
+        int groupId = groupCount++;
+        if (groupId == firstRowIndexes.length) {
+            int capacity = firstRowIndexes.length * 2;
+            firstRowIndexes = Arrays.copyOf(firstRowIndexes, capacity);
+            groupKeys = Arrays.copyOf(groupKeys, capacity * width);
+            groupHashes = Arrays.copyOf(groupHashes, capacity);
+        }
+        firstRowIndexes[groupId] = rowIndex;
+        System.arraycopy(batch, base, groupKeys, groupId * width, width);
+        groupHashes[groupId] = hash;
+        slots[slot] = groupId + 1;
+        if (groupCount * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return groupId;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int groupId = 0; groupId < groupCount; groupId++) {
+            int slot = groupHashes[groupId] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = groupId + 1;
+        }
+    }
+
+    private int hash(long[] batch, int base) {
+        long hash = 0;
+        for (int i = 0; i < width; i++) {
+            hash = (hash + batch[base + i]) * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 29;
+        }
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Matches the rows of two key columns through a primitive hash table built over one of them. The table maps each key to
+ * a chain of build rows (linked through an int array, in ascending row order), i.e. neither building nor probing
+ * allocates any objects per row. Missing keys never match.
+ */
+final class HashJoin {
+
+    private static final int MAX_CAPACITY = 1 << 30; // largest power of two which is a valid array length
+
+    private final Column<?> buildKeys;
+    private final Column<?> probeKeys;
+    private final int[] buildCodePerProbeCode; // translates category codes between dictionaries (null for other keys)
+    private final int[] heads; // first build row of a chain + 1 (0 marks an empty slot)
+    private final long[] slotKeys;
+    private final int[] next; // next build row with the same key (-1 ends a chain), indexed by build row
+
+    private HashJoin(Column<?> buildKeys, Column<?> probeKeys) {
+        this.buildKeys = buildKeys;
+        this.probeKeys = probeKeys;
+        this.buildCodePerProbeCode = buildKeys instanceof CategoryColumn ? translateCodes((CategoryColumn) buildKeys, (CategoryColumn) probeKeys) : null;
+        int rowCount = buildKeys.getRowCount();
+        if (rowCount >= MAX_CAPACITY) {
+            String msg = String.format("Cannot join on column '%s' with %d rows (max is %d)", buildKeys.getId().getName(), rowCount, MAX_CAPACITY - 1);
+            throw new IllegalArgumentException(msg);
+        }
+        // load factor of at most 0.5 (but only below 1 for more than 2^29 rows, which still leaves an empty slot)
+        int capacity = (int) Math.min(Long.highestOneBit(Math.max(rowCount, 1)) * 4, MAX_CAPACITY);
+        this.heads = new int[capacity];
+        this.slotKeys = new long[capacity];
+        this.next = new int[rowCount];
+        // inserting rows backwards (at the head of their chains) keeps chains in ascending row order
+        for (int rowIndex = rowCount - 1; rowIndex >= 0; rowIndex--) {
+            if (hasKey(buildKeys, rowIndex)) {
+                insert(rowIndex);
+            }
+        }
+    }
+
+    /**
+     * Returns the matching row indexes as <code>{leftRowIndexes, rightRowIndexes}</code> (with <code>-1</code> for
+     * unmatched rows of a left join).
+     */
+    static int[][] match(Column<?> leftKeys, Column<?> rightKeys, JoinType type) {
+        checkKeys(leftKeys, rightKeys);
+        boolean buildLeft = type == JoinType.INNER && leftKeys.getRowCount() < rightKeys.getRowCount();
+        HashJoin join = buildLeft ? new HashJoin(leftKeys, rightKeys) : new HashJoin(rightKeys, leftKeys);
+        return join.probe(type == JoinType.LEFT, buildLeft);
+    }
+
+    private static void checkKeys(Column<?> leftKeys, Column<?> rightKeys) {
+        ColumnId leftId = leftKeys.getId();
+        ColumnId rightId = rightKeys.getId();
+        if (!(leftKeys instanceof IntColumn || leftKeys instanceof LongColumn || leftKeys instanceof StringColumn || leftKeys instanceof CategoryColumn)) {
+            String msg = String.format("Cannot join on %s column '%s' (only Int, Long, String and Category columns)", leftId.getType().getDescription(), leftId.getName());
+            throw new IllegalArgumentException(msg);
+        }
+        if (leftKeys.getClass() != rightKeys.getClass()) {
+            String msg = String.format("Cannot join %s column '%s' with %s column '%s'", leftId.getType().getDescription(), leftId.getName(), rightId.getType().getDescription(), rightId.getName());
+            throw new IllegalArgumentException(msg);
+        }
+    }
+
+    private static int[] translateCodes(CategoryColumn buildKeys, CategoryColumn probeKeys) {
+        Map<String, Integer> buildCodes = new HashMap<>(buildKeys.getCategoryCount() * 2);
+        for (int code = 0; code < buildKeys.getCategoryCount(); code++) {
+            if (buildKeys.getCategory(code) != null) { // missing keys never match
+                buildCodes.put(buildKeys.getCategory(code), code);
+            }
+        }
+        int[] buildCodePerProbeCode = new int[probeKeys.getCategoryCount()];
+        for (int code = 0; code < buildCodePerProbeCode.length; code++) {
+            buildCodePerProbeCode[code] = buildCodes.getOrDefault(probeKeys.getCategory(code), -1);
+        }
+        return buildCodePerProbeCode;
+    }
+
+    private int[][] probe(boolean keepUnmatched, boolean buildLeft) {
+        int probeRowCount = probeKeys.getRowCount();
+        int[] probeRows = new int[probeRowCount];
+        int[] buildRows = new int[probeRowCount];
+        int size = 0;
+        for (int probeRow = 0; probeRow < probeRowCount; probeRow++) {
+            int buildRow = hasKey(probeKeys, probeRow) ? find(probeRow) : -1;
+            if (buildRow == -1 && !keepUnmatched) {
+                continue;
+            }
+            do {
+                if (size == probeRows.length) {
+                    int capacity = probeRows.length + (probeRows.length >> 1) + 1;
+                    probeRows = Arrays.copyOf(probeRows, capacity);
+                    buildRows = Arrays.copyOf(buildRows, capacity);
+                }
+                probeRows[size] = probeRow;
+                buildRows[size++] = buildRow;
+                buildRow = buildRow == -1 ? -1 : next[buildRow];
+            } while (buildRow != -1);
+        }
+        probeRows = Arrays.copyOf(probeRows, size);
+        buildRows = Arrays.copyOf(buildRows, size);
+        return buildLeft ? new int[][]{buildRows, probeRows} : new int[][]{probeRows, buildRows};
+    }
+
+    private void insert(int buildRow) {
+        long key = keyAt(buildKeys, buildRow);
+        int mask = heads.length - 1;
+        int slot = hash(key) & mask;
+        while (heads[slot] != 0 && !(slotKeys[slot] == key && keyEquals(buildRow, heads[slot] - 1, buildKeys))) {
+            slot = (slot + 1) & mask;
+        }
+        next[buildRow] = heads[slot] - 1;
+        heads[slot] = buildRow + 1;
+        slotKeys[slot] = key;
+    }
+
+    /**
+     * Returns the first build row whose key matches the key of the given probe row (or <code>-1</code>).
+     */
+    private int find(int probeRow) {
+        long key;
+        if (buildCodePerProbeCode != null) {
+            key = buildCodePerProbeCode[((CategoryColumn) probeKeys).getCodeAt(probeRow)];
+            if (key == -1) {
+                return -1;
+            }
+        } else {
+            key = keyAt(probeKeys, probeRow);
+        }
+        int mask = heads.length - 1;
+        for (int slot = hash(key) & mask; heads[slot] != 0; slot = (slot + 1) & mask) {
+            if (slotKeys[slot] == key && keyEquals(heads[slot] - 1, probeRow, probeKeys)) {
+                return heads[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Keys of string columns are hashes, which need to be confirmed by comparing the actual bytes.
+     */
+    private boolean keyEquals(int buildRow, int rowIndex, Column<?> keys) {
+        return !(keys instanceof StringColumn) || ((StringColumn) buildKeys).equalsAt(buildRow, (StringColumn) keys, rowIndex);
+    }
+
+    private static boolean hasKey(Column<?> keys, int rowIndex) {
+        if (keys instanceof IntColumn) {
+            return !((IntColumn) keys).isNull(rowIndex);
+        } else if (keys instanceof LongColumn) {
+            return !((LongColumn) keys).isNull(rowIndex);
+        } else if (keys instanceof StringColumn) {
+            return !((StringColumn) keys).isNull(rowIndex);
+        }
+        return ((CategoryColumn) keys).getValueAt(rowIndex) != null;
+    }
+
+    private static long keyAt(Column<?> keys, int rowIndex) {
+        if (keys instanceof IntColumn) {
+            return ((IntColumn) keys).getValueAt(rowIndex);
+        } else if (keys instanceof LongColumn) {
+            return ((LongColumn) keys).getValueAt(rowIndex);
+        } else if (keys instanceof StringColumn) {
+            return ((StringColumn) keys).hashCodeAt(rowIndex);
+        }
+        return ((CategoryColumn) keys).getCodeAt(rowIndex);
+    }
+
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+}
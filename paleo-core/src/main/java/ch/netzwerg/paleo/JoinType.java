@@ -16,26 +16,19 @@
 
 package ch.netzwerg.paleo;
 
-import io.vavr.collection.Array;
-import org.junit.Test;
-
-import static org.junit.Assert.assertEquals;
-
-public abstract class AbstractColumnTest<V, C extends AbstractColumn<V, ?>> extends AbstractBaseColumnTest<V, C> {
-
-    abstract V generateValue();
-
-    @Test
-    public void values() {
-        V v0 = generateValue();
-        V v1 = generateValue();
-        V v2 = generateValue();
-        C column = builder().add(v0).add(v1).add(v2).build();
+/**
+ * See {@link DataFrame#join(DataFrame, ColumnId, ColumnId, JoinType)}.
+ */
+public enum JoinType {
 
-        Array<V> expected = Array.of(v0, v1, v2);
+    /**
+     * Only keeps rows whose key matches in both data frames.
+     */
+    INNER,
 
-        assertEquals(expected, column.getValues());
-        assertEquals(expected, column.valueStream().toArray());
-    }
+    /**
+     * Keeps all rows of the left data frame, unmatched rows get missing values in the columns of the right one.
+     */
+    LEFT
 
-}
\ No newline at end of file
+}
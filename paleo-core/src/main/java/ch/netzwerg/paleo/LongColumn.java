@@ -16,23 +16,48 @@
 
 package ch.netzwerg.paleo;
 
+import ch.netzwerg.paleo.ColumnIds.BooleanColumnId;
 import ch.netzwerg.paleo.ColumnIds.LongColumnId;
+import ch.netzwerg.paleo.impl.DirectMemory;
 import ch.netzwerg.paleo.impl.MetaDataBuilder;
+import io.vavr.Lazy;
 import io.vavr.collection.Map;
+import io.vavr.control.Option;
 
+import java.nio.LongBuffer;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.function.LongBinaryOperator;
+import java.util.stream.IntStream;
 import java.util.stream.LongStream;
 
 public class LongColumn implements Column<LongColumnId> {
 
     private final LongColumnId id;
-    private final long[] values;
+    private final Storage storage;
+    private final LongBuffer values;
+    private final DirectMemory.Block memory; // direct memory shared with all views (null for heap storage)
+    private final boolean view; // whether the memory is owned by another column
+    private final int rowCount;
+    private final BitSet nulls; // null if there are no missing values
     private final Map<String, String> metaData;
+    private final Lazy<ColumnStatistics<Long>> statistics;
+    private final Lazy<ZoneMap> zoneMap; // built on first range query
 
-    private LongColumn(LongColumnId id, LongStream values, Map<String, String> metaData) {
+    private LongColumn(LongColumnId id, Storage storage, LongBuffer values, DirectMemory.Block memory, boolean view, int rowCount, BitSet nulls, Map<String, String> metaData) {
         this.id = id;
-        this.values = values.toArray();
+        this.storage = storage;
+        this.values = values;
+        this.memory = memory;
+        this.view = view;
+        this.rowCount = rowCount;
+        this.nulls = nulls;
         this.metaData = metaData;
+        this.statistics = Lazy.of(this::computeStatistics);
+        this.zoneMap = Lazy.of(this::buildZoneMap);
     }
 
     public static LongColumn of(LongColumnId id, long value) {
@@ -40,7 +65,7 @@ public class LongColumn implements Column<LongColumnId> {
     }
 
     public static LongColumn ofAll(LongColumnId id, long... values) {
-        return builder(id).addAll(values).build();
+        return builder(id, values.length).addAll(values).build();
     }
 
     public static LongColumn ofAll(LongColumnId id, LongStream values) {
@@ -48,7 +73,14 @@ public class LongColumn implements Column<LongColumnId> {
     }
 
     public static Builder builder(LongColumnId id) {
-        return new Builder(id);
+        return new Builder(id, Builder.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a builder which pre-allocates room for <code>expectedSize</code> values (it still grows if needed).
+     */
+    public static Builder builder(LongColumnId id, int expectedSize) {
+        return new Builder(id, expectedSize);
     }
 
     @Override
@@ -58,7 +90,7 @@ public class LongColumn implements Column<LongColumnId> {
 
     @Override
     public int getRowCount() {
-        return values.length;
+        return rowCount;
     }
 
     @Override
@@ -66,44 +98,536 @@ public class LongColumn implements Column<LongColumnId> {
         return metaData;
     }
 
+    /**
+     * Returns the value at the given row (<code>0L</code> for missing values, see {@link #isNull(int)}).
+     */
     public long getValueAt(int index) {
-        return values[index];
+        return values().get(index);
     }
 
+    public boolean isNull(int index) {
+        Checks.checkRowIndex(index, rowCount);
+        return nulls != null && nulls.get(index);
+    }
+
+    public int getNullCount() {
+        return nulls == null ? 0 : nulls.cardinality();
+    }
+
+    /**
+     * Streams all values, including <code>0L</code> placeholders for missing values.
+     */
     public LongStream valueStream() {
-        return Arrays.stream(values);
+        LongBuffer values = values();
+        if (values.hasArray()) {
+            return Arrays.stream(values.array(), values.arrayOffset(), values.arrayOffset() + rowCount);
+        }
+        return IntStream.range(0, rowCount).mapToLong(values::get);
+    }
+
+    /**
+     * Streams all values except missing ones, e.g. to compute summary statistics.
+     */
+    public LongStream nonNullValueStream() {
+        if (nulls == null) {
+            return valueStream();
+        }
+        LongBuffer values = values();
+        return IntStream.range(0, rowCount).filter(i -> !nulls.get(i)).mapToLong(values::get);
+    }
+
+    /**
+     * Returns a view which shares the values of this column (for off-heap storage, the view does not own the memory,
+     * i.e. it can no longer be accessed once this column has been released).
+     */
+    @Override
+    public LongColumn slice(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, rowCount);
+        LongBuffer slicedValues = values().duplicate();
+        slicedValues.position(fromRowIndex);
+        slicedValues.limit(toRowIndex);
+        BitSet slicedNulls = nulls == null ? null : nulls.get(fromRowIndex, toRowIndex);
+        if (slicedNulls != null && slicedNulls.isEmpty()) {
+            slicedNulls = null;
+        }
+        return new LongColumn(id, storage, slicedValues.slice(), memory, true, toRowIndex - fromRowIndex, slicedNulls, metaData);
+    }
+
+    /**
+     * Copies the given rows into a new column with the same storage.
+     */
+    @Override
+    public LongColumn gather(int[] rowIndexes) {
+        LongBuffer values = values();
+        Builder builder = builder(id, rowIndexes.length).storage(storage).putAllMetaData(metaData);
+        for (int rowIndex : rowIndexes) {
+            if (rowIndex == -1 || isNull(rowIndex)) {
+                builder.addNull();
+            } else {
+                builder.add(values.get(rowIndex));
+            }
+        }
+        return builder.build();
+    }
+
+    // Aggregations skip missing values and come in three variants: all rows, a row range [fromRowIndex, toRowIndex),
+    // and arbitrary rows (e.g. the selection vector of a filter). They are plain loops over the backing array (or the
+    // buffer, for off-heap storage), which is considerably faster than the equivalent stream pipelines.
+
+    /**
+     * Sums up all non-missing values (silently overflows, like {@link LongStream#sum()}).
+     */
+    public long sum() {
+        return sum(null, 0, rowCount);
+    }
+
+    public long sum(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, rowCount);
+        return sum(null, fromRowIndex, toRowIndex);
+    }
+
+    public long sum(int[] rowIndexes) {
+        return sum(rowIndexes, 0, rowIndexes.length);
+    }
+
+    public OptionalLong min() {
+        return min(null, 0, rowCount);
+    }
+
+    public OptionalLong min(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, rowCount);
+        return min(null, fromRowIndex, toRowIndex);
+    }
+
+    public OptionalLong min(int[] rowIndexes) {
+        return min(rowIndexes, 0, rowIndexes.length);
+    }
+
+    public OptionalLong max() {
+        return max(null, 0, rowCount);
+    }
+
+    public OptionalLong max(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, rowCount);
+        return max(null, fromRowIndex, toRowIndex);
+    }
+
+    public OptionalLong max(int[] rowIndexes) {
+        return max(rowIndexes, 0, rowIndexes.length);
+    }
+
+    public OptionalDouble mean() {
+        return mean(null, 0, rowCount);
+    }
+
+    public OptionalDouble mean(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, rowCount);
+        return mean(null, fromRowIndex, toRowIndex);
+    }
+
+    public OptionalDouble mean(int[] rowIndexes) {
+        return mean(rowIndexes, 0, rowIndexes.length);
+    }
+
+    /**
+     * Returns the sample variance of the non-missing values (i.e. normalized by <code>count - 1</code>), or nothing if
+     * there are less than two values.
+     */
+    public OptionalDouble variance() {
+        return variance(null, 0, rowCount);
+    }
+
+    public OptionalDouble variance(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, rowCount);
+        return variance(null, fromRowIndex, toRowIndex);
+    }
+
+    public OptionalDouble variance(int[] rowIndexes) {
+        return variance(rowIndexes, 0, rowIndexes.length);
+    }
+
+    /**
+     * Counts the non-missing values.
+     */
+    public int count() {
+        return count(null, 0, rowCount);
+    }
+
+    public int count(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, rowCount);
+        return count(null, fromRowIndex, toRowIndex);
+    }
+
+    public int count(int[] rowIndexes) {
+        return count(rowIndexes, 0, rowIndexes.length);
+    }
+
+    // Parallel variants of the above aggregations (for all rows, aggregate a slice to restrict them to a row range)
+
+    public long sum(Parallelism parallelism) {
+        return parallelism.reduce(rowCount, (from, to) -> sum(null, from, to), Long::sum);
+    }
+
+    public OptionalLong min(Parallelism parallelism) {
+        return parallelism.reduce(rowCount, (from, to) -> min(null, from, to), (a, b) -> combine(a, b, Math::min));
+    }
+
+    public OptionalLong max(Parallelism parallelism) {
+        return parallelism.reduce(rowCount, (from, to) -> max(null, from, to), (a, b) -> combine(a, b, Math::max));
+    }
+
+    public OptionalDouble mean(Parallelism parallelism) {
+        int count = count(parallelism);
+        return count == 0 ? OptionalDouble.empty() : OptionalDouble.of((double) sum(parallelism) / count);
+    }
+
+    public OptionalDouble variance(Parallelism parallelism) {
+        return parallelism.reduce(rowCount, (from, to) -> moments(null, from, to), Moments::combine).variance();
+    }
+
+    public int count(Parallelism parallelism) {
+        return parallelism.reduce(rowCount, (from, to) -> count(null, from, to), Integer::sum);
+    }
+
+    private long sum(int[] rowIndexes, int from, int to) {
+        LongBuffer values = values();
+        long[] array = values.hasArray() ? values.array() : null;
+        int base = array == null ? 0 : values.arrayOffset();
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            int rowIndex = rowIndexAt(rowIndexes, i);
+            sum += array != null ? array[base + rowIndex] : values.get(rowIndex); // missing values are stored as 0
+        }
+        return sum;
+    }
+
+    private OptionalLong min(int[] rowIndexes, int from, int to) {
+        LongBuffer values = values();
+        long[] array = values.hasArray() ? values.array() : null;
+        int base = array == null ? 0 : values.arrayOffset();
+        boolean found = false;
+        long min = Long.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            int rowIndex = rowIndexAt(rowIndexes, i);
+            if (nulls == null || !nulls.get(rowIndex)) {
+                min = Math.min(min, array != null ? array[base + rowIndex] : values.get(rowIndex));
+                found = true;
+            }
+        }
+        return found ? OptionalLong.of(min) : OptionalLong.empty();
+    }
+
+    private OptionalLong max(int[] rowIndexes, int from, int to) {
+        LongBuffer values = values();
+        long[] array = values.hasArray() ? values.array() : null;
+        int base = array == null ? 0 : values.arrayOffset();
+        boolean found = false;
+        long max = Long.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            int rowIndex = rowIndexAt(rowIndexes, i);
+            if (nulls == null || !nulls.get(rowIndex)) {
+                max = Math.max(max, array != null ? array[base + rowIndex] : values.get(rowIndex));
+                found = true;
+            }
+        }
+        return found ? OptionalLong.of(max) : OptionalLong.empty();
+    }
+
+    private OptionalDouble mean(int[] rowIndexes, int from, int to) {
+        int count = count(rowIndexes, from, to);
+        return count == 0 ? OptionalDouble.empty() : OptionalDouble.of((double) sum(rowIndexes, from, to) / count);
+    }
+
+    private OptionalDouble variance(int[] rowIndexes, int from, int to) {
+        return moments(rowIndexes, from, to).variance();
+    }
+
+    /**
+     * Two-pass algorithm (corrected for the rounding error of the mean), which is numerically more stable than summing
+     * up squares in one pass.
+     */
+    private Moments moments(int[] rowIndexes, int from, int to) {
+        int count = count(rowIndexes, from, to);
+        if (count == 0) {
+            return Moments.EMPTY;
+        }
+        double mean = (double) sum(rowIndexes, from, to) / count;
+        LongBuffer values = values();
+        long[] array = values.hasArray() ? values.array() : null;
+        int base = array == null ? 0 : values.arrayOffset();
+        double sumOfSquares = 0;
+        double sumOfDeviations = 0;
+        for (int i = from; i < to; i++) {
+            int rowIndex = rowIndexAt(rowIndexes, i);
+            if (nulls == null || !nulls.get(rowIndex)) {
+                double deviation = (array != null ? array[base + rowIndex] : values.get(rowIndex)) - mean;
+                sumOfSquares += deviation * deviation;
+                sumOfDeviations += deviation;
+            }
+        }
+        return new Moments(count, mean, sumOfSquares - sumOfDeviations * sumOfDeviations / count);
+    }
+
+    private int count(int[] rowIndexes, int from, int to) {
+        if (rowIndexes == null && nulls == null) {
+            return to - from;
+        }
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int rowIndex = rowIndexAt(rowIndexes, i);
+            if (nulls == null || !nulls.get(rowIndex)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static OptionalLong combine(OptionalLong a, OptionalLong b, LongBinaryOperator operator) {
+        if (!a.isPresent()) {
+            return b;
+        }
+        return b.isPresent() ? OptionalLong.of(operator.applyAsLong(a.getAsLong(), b.getAsLong())) : a;
+    }
+
+    private int rowIndexAt(int[] rowIndexes, int i) {
+        if (rowIndexes == null) {
+            return i;
+        }
+        int rowIndex = rowIndexes[i];
+        Checks.checkRowIndex(rowIndex, rowCount);
+        return rowIndex;
+    }
+
+    // Grouped aggregation kernels (see Aggregation): groupIds assigns each row to a group in [0, groupCount). Groups
+    // without any non-missing values end up with 0 (sum) or the initial value (min/max), use counts to detect them.
+
+    int[] countByGroup(int[] groupIds, int groupCount) {
+        int[] counts = new int[groupCount];
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            if (nulls == null || !nulls.get(rowIndex)) {
+                counts[groupIds[rowIndex]]++;
+            }
+        }
+        return counts;
+    }
+
+    long[] sumByGroup(int[] groupIds, int groupCount) {
+        LongBuffer values = values();
+        long[] array = values.hasArray() ? values.array() : null;
+        int base = array == null ? 0 : values.arrayOffset();
+        long[] sums = new long[groupCount];
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            sums[groupIds[rowIndex]] += array != null ? array[base + rowIndex] : values.get(rowIndex); // missing values are stored as 0
+        }
+        return sums;
+    }
+
+    long[] minByGroup(int[] groupIds, int groupCount) {
+        LongBuffer values = values();
+        long[] array = values.hasArray() ? values.array() : null;
+        int base = array == null ? 0 : values.arrayOffset();
+        long[] mins = new long[groupCount];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            if (nulls == null || !nulls.get(rowIndex)) {
+                int group = groupIds[rowIndex];
+                mins[group] = Math.min(mins[group], array != null ? array[base + rowIndex] : values.get(rowIndex));
+            }
+        }
+        return mins;
+    }
+
+    long[] maxByGroup(int[] groupIds, int groupCount) {
+        LongBuffer values = values();
+        long[] array = values.hasArray() ? values.array() : null;
+        int base = array == null ? 0 : values.arrayOffset();
+        long[] maxs = new long[groupCount];
+        Arrays.fill(maxs, Long.MIN_VALUE);
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            if (nulls == null || !nulls.get(rowIndex)) {
+                int group = groupIds[rowIndex];
+                maxs[group] = Math.max(maxs[group], array != null ? array[base + rowIndex] : values.get(rowIndex));
+            }
+        }
+        return maxs;
+    }
+
+    /**
+     * Returns the null count, minimum, maximum, sortedness, and (estimated) number of distinct values of this column,
+     * computed in a single pass on first access.
+     */
+    public ColumnStatistics<Long> getStatistics() {
+        return statistics.get();
+    }
+
+    /**
+     * Returns a mask of the rows whose values are in <code>[min, max]</code> (missing values do not match), e.g. to
+     * filter a data frame (see {@link DataFrame#filter(BooleanColumn)}). Ranges outside the column's minimum and
+     * maximum are answered from its statistics. Otherwise, a zone map (built on first use) skips blocks of rows without
+     * matches and takes blocks which match entirely, so only blocks straddling a bound are scanned.
+     */
+    public BooleanColumn isBetween(long min, long max) {
+        BitSet matches = new BitSet(rowCount);
+        ColumnStatistics<Long> statistics = getStatistics();
+        if (min <= max && statistics.getMin().isDefined() && min <= statistics.getMax().get() && max >= statistics.getMin().get()) {
+            ZoneMap zoneMap = this.zoneMap.get();
+            long minKey = min;
+            long maxKey = max;
+            LongBuffer values = values();
+            long[] array = values.hasArray() ? values.array() : null;
+            int base = array == null ? 0 : values.arrayOffset();
+            for (int block = 0; block < zoneMap.getBlockCount(); block++) {
+                int from = block * ZoneMap.BLOCK_SIZE;
+                int to = Math.min(from + ZoneMap.BLOCK_SIZE, rowCount);
+                if (zoneMap.within(block, minKey, maxKey)) {
+                    matches.set(from, to);
+                } else if (zoneMap.overlaps(block, minKey, maxKey)) {
+                    for (int rowIndex = from; rowIndex < to; rowIndex++) {
+                        long value = array != null ? array[base + rowIndex] : values.get(rowIndex);
+                        if (value >= min && value <= max) {
+                            matches.set(rowIndex);
+                        }
+                    }
+                }
+            }
+            if (nulls != null) {
+                matches.andNot(nulls);
+            }
+        }
+        return BooleanColumn.ofBits(BooleanColumnId.of(id.getName()), rowCount, matches);
+    }
+
+    private ColumnStatistics<Long> computeStatistics() {
+        LongBuffer values = values();
+        long[] array = values.hasArray() ? values.array() : null;
+        int base = array == null ? 0 : values.arrayOffset();
+        DistinctCounter distinctCounter = new DistinctCounter();
+        boolean found = false;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        boolean sorted = nulls == null;
+        long previous = Long.MIN_VALUE;
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            if (nulls != null && nulls.get(rowIndex)) {
+                continue;
+            }
+            long value = array != null ? array[base + rowIndex] : values.get(rowIndex);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sorted &= value >= previous;
+            previous = value;
+            distinctCounter.add(value);
+            found = true;
+        }
+        Option<Long> foundMin = found ? Option.of(min) : Option.none();
+        Option<Long> foundMax = found ? Option.of(max) : Option.none();
+        return new ColumnStatistics<>(getNullCount(), foundMin, foundMax, sorted, distinctCounter.estimate(), false);
+    }
+
+    private ZoneMap buildZoneMap() {
+        LongBuffer values = values();
+        long[] array = values.hasArray() ? values.array() : null;
+        int base = array == null ? 0 : values.arrayOffset();
+        ZoneMap.Builder builder = ZoneMap.builder(rowCount);
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            if (nulls == null || !nulls.get(rowIndex)) {
+                long value = array != null ? array[base + rowIndex] : values.get(rowIndex);
+                builder.add(rowIndex, value);
+            }
+        }
+        return builder.build();
+    }
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Frees the off-heap memory of this column right away (instead of waiting for garbage collection). Has no effect
+     * for heap storage or views (see {@link #slice(int, int)}). Accessing an off-heap column (or any of its views) after
+     * it has been released fails with an {@link IllegalStateException}, but releasing must not race with ongoing accesses.
+     */
+    public void release() {
+        if (memory != null && !view) {
+            memory.free();
+        }
+    }
+
+    private LongBuffer values() {
+        if (memory != null && memory.isFreed()) {
+            throw new IllegalStateException(String.format("Column '%s' has been released", id.getName()));
+        }
+        return values;
     }
 
     public static final class Builder implements Column.Builder<Long, LongColumn> {
 
+        private static final int DEFAULT_CAPACITY = 16;
+
         private final LongColumnId id;
-        private final LongStream.Builder valueBuilder;
+        private long[] values;
+        private int size;
+        private boolean shared; // values have been handed over to a built column
+        private BitSet nulls;
+        private Storage storage;
         private final MetaDataBuilder metaDataBuilder;
 
-        private Builder(LongColumnId id) {
+        private Builder(LongColumnId id, int expectedSize) {
+            if (expectedSize < 0) {
+                throw new IllegalArgumentException("Negative expected size: " + expectedSize);
+            }
             this.id = id;
-            this.valueBuilder = LongStream.builder();
+            this.values = new long[expectedSize];
+            this.storage = Storage.getDefault();
             this.metaDataBuilder = new MetaDataBuilder();
         }
 
+        /**
+         * Overrides the global default storage (see {@link Storage#getDefault()}) for columns created by this builder.
+         */
+        public Builder storage(Storage storage) {
+            this.storage = Objects.requireNonNull(storage, "storage is null");
+            return this;
+        }
+
+        /**
+         * Adds the given value, or a missing value if <code>value</code> is <code>null</code>.
+         */
         @Override
         public Builder add(Long value) {
-            valueBuilder.add(value);
-            return this;
+            return value == null ? addNull() : add(value.longValue());
         }
 
         public Builder add(Integer value) {
-            valueBuilder.add(value);
+            return value == null ? addNull() : add(value.longValue());
+        }
+
+        public Builder add(long value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+            return this;
+        }
+
+        public Builder addNull() {
+            ensureCapacity(size + 1);
+            if (nulls == null) {
+                nulls = new BitSet();
+            }
+            values[size] = 0L;
+            nulls.set(size++);
             return this;
         }
 
         public Builder addAll(long... values) {
-            return addAll(Arrays.stream(values));
+            ensureCapacity(size + values.length);
+            System.arraycopy(values, 0, this.values, size, values.length);
+            size += values.length;
+            return this;
         }
 
         public Builder addAll(Iterable<Long> values) {
             for (Long value : values) {
-                this.valueBuilder.add(value);
+                add(value);
             }
             return this;
         }
@@ -113,6 +637,25 @@ public class LongColumn implements Column<LongColumnId> {
             return this;
         }
 
+        /**
+         * Appends all rows of the given column (e.g. to concatenate columns which were built in chunks).
+         */
+        public Builder addAll(LongColumn column) {
+            int rowCount = column.getRowCount();
+            ensureCapacity(size + rowCount);
+            column.values().duplicate().get(values, size, rowCount);
+            if (column.nulls != null && !column.nulls.isEmpty()) {
+                if (nulls == null) {
+                    nulls = new BitSet();
+                }
+                for (int i = column.nulls.nextSetBit(0); i >= 0; i = column.nulls.nextSetBit(i + 1)) {
+                    nulls.set(size + i);
+                }
+            }
+            size += rowCount;
+            return this;
+        }
+
         @Override
         public Builder putMetaData(String key, String value) {
             metaDataBuilder.putMetaData(key, value);
@@ -127,7 +670,30 @@ public class LongColumn implements Column<LongColumnId> {
 
         @Override
         public LongColumn build() {
-            return new LongColumn(id, valueBuilder.build(), metaDataBuilder.build());
+            BitSet builtNulls = nulls == null ? null : (BitSet) nulls.clone();
+            if (storage == Storage.OFF_HEAP) {
+                DirectMemory.Block memory = DirectMemory.allocateBlock((long) size * Long.BYTES);
+                LongBuffer offHeapValues = memory.getBuffer().asLongBuffer();
+                offHeapValues.put(values, 0, size);
+                offHeapValues.flip();
+                return new LongColumn(id, storage, offHeapValues, memory, false, size, builtNulls, metaDataBuilder.build());
+            }
+            if (values.length - size > size >> 3) {
+                // trimmed copy, so the column does not keep the spare capacity of the builder alive
+                LongBuffer trimmedValues = LongBuffer.wrap(Arrays.copyOf(values, size));
+                return new LongColumn(id, storage, trimmedValues, null, false, size, builtNulls, metaDataBuilder.build());
+            }
+            shared = true;
+            LongBuffer heapValues = LongBuffer.wrap(values, 0, size).slice();
+            return new LongColumn(id, storage, heapValues, null, false, size, builtNulls, metaDataBuilder.build());
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            if (shared || minCapacity > values.length) {
+                int capacity = Math.max(minCapacity, values.length + (values.length >> 1) + 1);
+                values = Arrays.copyOf(values, capacity);
+                shared = false;
+            }
         }
 
     }
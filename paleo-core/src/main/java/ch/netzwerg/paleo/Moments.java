@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo;
+
+import java.util.OptionalDouble;
+
+/**
+ * Count, mean, and sum of squared deviations from the mean of some values. Moments of disjoint sets of values can be
+ * combined without revisiting the values (Chan et al.), which allows computing variances chunk by chunk.
+ */
+final class Moments {
+
+    static final Moments EMPTY = new Moments(0, 0, 0);
+
+    private final int count;
+    private final double mean;
+    private final double sumOfSquaredDeviations;
+
+    Moments(int count, double mean, double sumOfSquaredDeviations) {
+        this.count = count;
+        this.mean = mean;
+        this.sumOfSquaredDeviations = sumOfSquaredDeviations;
+    }
+
+    Moments combine(Moments other) {
+        if (other.count == 0) {
+            return this;
+        } else if (count == 0) {
+            return other;
+        }
+        int combinedCount = count + other.count;
+        double delta = other.mean - mean;
+        double combinedMean = mean + delta * other.count / combinedCount;
+        double combinedSum = sumOfSquaredDeviations + other.sumOfSquaredDeviations + delta * delta * count / combinedCount * other.count;
+        return new Moments(combinedCount, combinedMean, combinedSum);
+    }
+
+    /**
+     * Returns the sample variance (i.e. normalized by <code>count - 1</code>), or nothing for less than two values.
+     */
+    OptionalDouble variance() {
+        return count < 2 ? OptionalDouble.empty() : OptionalDouble.of(sumOfSquaredDeviations / (count - 1));
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Configures parallel aggregations (e.g. {@link DoubleColumn#sum(Parallelism)}). Columns are split into fixed chunks
+ * of {@value #CHUNK_SIZE} rows, which are aggregated on the given pool. Partial results are always combined in the
+ * same order, i.e. results do not depend on the number of threads (not even rounding errors of floating point sums).
+ * Columns with less than <code>threshold</code> rows are aggregated on the calling thread.
+ */
+public final class Parallelism {
+
+    /**
+     * Number of rows per chunk (small enough for the values of a chunk to fit into a per-core cache).
+     */
+    public static final int CHUNK_SIZE = 1 << 15;
+
+    public static final int DEFAULT_THRESHOLD = 1 << 18;
+
+    private static final Parallelism COMMON = of(ForkJoinPool.commonPool());
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    private Parallelism(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Uses the common pool and the default threshold.
+     */
+    public static Parallelism common() {
+        return COMMON;
+    }
+
+    public static Parallelism of(ForkJoinPool pool) {
+        return of(pool, DEFAULT_THRESHOLD);
+    }
+
+    public static Parallelism of(ForkJoinPool pool, int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Negative threshold: " + threshold);
+        }
+        return new Parallelism(Objects.requireNonNull(pool, "pool is null"), threshold);
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Applies the given function to all chunks of <code>[0, rowCount)</code> and combines the partial results.
+     */
+    <R> R reduce(int rowCount, RangeFunction<R> function, BinaryOperator<R> combiner) {
+        if (rowCount < threshold || rowCount <= CHUNK_SIZE) {
+            return function.apply(0, rowCount);
+        }
+        int chunkCount = (int) (((long) rowCount + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        return pool.invoke(new ChunkTask<>(rowCount, 0, chunkCount, function, combiner));
+    }
+
+    interface RangeFunction<R> {
+
+        R apply(int fromRowIndex, int toRowIndex);
+
+    }
+
+    private static final class ChunkTask<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int rowCount;
+        private final int fromChunk;
+        private final int toChunk;
+        private final RangeFunction<R> function;
+        private final BinaryOperator<R> combiner;
+
+        private ChunkTask(int rowCount, int fromChunk, int toChunk, RangeFunction<R> function, BinaryOperator<R> combiner) {
+            this.rowCount = rowCount;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.function = function;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected R compute() {
+            if (toChunk - fromChunk == 1) {
+                int fromRowIndex = fromChunk * CHUNK_SIZE;
+                int toRowIndex = (int) Math.min((long) toChunk * CHUNK_SIZE, rowCount);
+                return function.apply(fromRowIndex, toRowIndex);
+            }
+            // the split only depends on the chunk count, so partial results are always combined in the same order
+            int middleChunk = (fromChunk + toChunk) >>> 1;
+            ChunkTask<R> left = new ChunkTask<>(rowCount, fromChunk, middleChunk, function, combiner);
+            left.fork();
+            R right = new ChunkTask<>(rowCount, middleChunk, toChunk, function, combiner).compute();
+            return combiner.apply(left.join(), right);
+        }
+
+    }
+
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo;
+
+import java.util.Arrays;
+
+/**
+ * Immutable compressed set of row indexes in the style of Roaring bitmaps: rows are partitioned by their upper 16 bits,
+ * and the lower 16 bits of each partition are kept in whichever container is smallest, i.e. a sorted array (few rows),
+ * a bitmap of 2<sup>16</sup> bits (many rows), or a list of runs (consecutive rows, e.g. of sorted data).
+ */
+final class RowBitmap {
+
+    private static final int BITMAP_WORDS = (1 << 16) / Long.SIZE;
+    private static final int BITMAP_BYTES = BITMAP_WORDS * Long.BYTES;
+
+    static final RowBitmap EMPTY = new RowBitmap(new char[0], new Container[0]);
+
+    private final char[] keys; // upper 16 bits of the rows in each container (ascending)
+    private final Container[] containers;
+    private final int cardinality;
+
+    private RowBitmap(char[] keys, Container[] containers) {
+        this.keys = keys;
+        this.containers = containers;
+        int total = 0;
+        for (Container container : containers) {
+            total += container.cardinality();
+        }
+        this.cardinality = total;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    int getCardinality() {
+        return cardinality;
+    }
+
+    boolean contains(int rowIndex) {
+        int i = Arrays.binarySearch(keys, (char) (rowIndex >>> 16));
+        return i >= 0 && containers[i].contains((char) rowIndex);
+    }
+
+    /**
+     * Returns all rows in ascending order.
+     */
+    int[] toArray() {
+        int[] rowIndexes = new int[cardinality];
+        int position = 0;
+        for (int i = 0; i < keys.length; i++) {
+            position = containers[i].toArray(keys[i] << 16, rowIndexes, position);
+        }
+        return rowIndexes;
+    }
+
+    /**
+     * Returns the union of the given bitmaps. Containers of partitions which occur in only one bitmap are shared, all
+     * others are merged word by word.
+     */
+    static RowBitmap or(RowBitmap... bitmaps) {
+        if (bitmaps.length == 1) {
+            return bitmaps[0];
+        }
+        int keyCount = 0;
+        for (RowBitmap bitmap : bitmaps) {
+            if (bitmap.keys.length > 0) {
+                keyCount = Math.max(keyCount, bitmap.keys[bitmap.keys.length - 1] + 1);
+            }
+        }
+        Container[] merged = new Container[keyCount];
+        long[][] mergedWords = new long[keyCount][];
+        for (RowBitmap bitmap : bitmaps) {
+            for (int i = 0; i < bitmap.keys.length; i++) {
+                int key = bitmap.keys[i];
+                if (merged[key] == null && mergedWords[key] == null) {
+                    merged[key] = bitmap.containers[i];
+                    continue;
+                }
+                if (mergedWords[key] == null) {
+                    mergedWords[key] = new long[BITMAP_WORDS];
+                    merged[key].orInto(mergedWords[key]);
+                }
+                bitmap.containers[i].orInto(mergedWords[key]);
+            }
+        }
+        char[] keys = new char[keyCount];
+        Container[] containers = new Container[keyCount];
+        int count = 0;
+        for (int key = 0; key < keyCount; key++) {
+            Container container = mergedWords[key] == null ? merged[key] : Container.of(mergedWords[key]);
+            if (container != null) {
+                keys[count] = (char) key;
+                containers[count++] = container;
+            }
+        }
+        return new RowBitmap(Arrays.copyOf(keys, count), Arrays.copyOf(containers, count));
+    }
+
+    static final class Builder {
+
+        private static final int DEFAULT_CAPACITY = 4;
+
+        private char[] keys = new char[DEFAULT_CAPACITY];
+        private Container[] containers = new Container[DEFAULT_CAPACITY];
+        private int containerCount;
+        private int currentKey = -1;
+        private char[] values = new char[DEFAULT_CAPACITY]; // lower 16 bits of the rows of the current partition
+        private int valueCount;
+        private int lastRowIndex = -1;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds the given row, which must be greater than all previously added rows.
+         */
+        Builder add(int rowIndex) {
+            if (rowIndex <= lastRowIndex) {
+                throw new IllegalArgumentException("Rows must be added in ascending order: " + rowIndex);
+            }
+            lastRowIndex = rowIndex;
+            int key = rowIndex >>> 16;
+            if (key != currentKey) {
+                flush();
+                currentKey = key;
+            }
+            if (valueCount == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[valueCount++] = (char) rowIndex;
+            return this;
+        }
+
+        RowBitmap build() {
+            flush();
+            return new RowBitmap(Arrays.copyOf(keys, containerCount), Arrays.copyOf(containers, containerCount));
+        }
+
+        private void flush() {
+            if (valueCount == 0) {
+                return;
+            }
+            if (containerCount == keys.length) {
+                keys = Arrays.copyOf(keys, keys.length * 2);
+                containers = Arrays.copyOf(containers, containers.length * 2);
+            }
+            keys[containerCount] = (char) currentKey;
+            containers[containerCount++] = Container.of(values, valueCount);
+            valueCount = 0;
+        }
+
+    }
+
+    private static abstract class Container {
+
+        /**
+         * Creates the smallest container for the given (ascending, distinct) values.
+         */
+        static Container of(char[] values, int count) {
+            int runCount = count == 0 ? 0 : 1;
+            for (int i = 1; i < count; i++) {
+                if (values[i] != values[i - 1] + 1) {
+                    runCount++;
+                }
+            }
+            int arrayBytes = count * Character.BYTES;
+            int runBytes = runCount * 2 * Character.BYTES;
+            if (runBytes < arrayBytes && runBytes < BITMAP_BYTES) {
+                char[] starts = new char[runCount];
+                char[] lengths = new char[runCount];
+                int run = -1;
+                for (int i = 0; i < count; i++) {
+                    if (i == 0 || values[i] != values[i - 1] + 1) {
+                        starts[++run] = values[i];
+                    } else {
+                        lengths[run]++;
+                    }
+                }
+                return new RunContainer(starts, lengths, count);
+            } else if (arrayBytes <= BITMAP_BYTES) {
+                return new ArrayContainer(Arrays.copyOf(values, count));
+            } else {
+                long[] words = new long[BITMAP_WORDS];
+                for (int i = 0; i < count; i++) {
+                    words[values[i] >>> 6] |= 1L << values[i];
+                }
+                return new BitmapContainer(words, count);
+            }
+        }
+
+        /**
+         * Creates the smallest container for the given bitmap words (or <code>null</code> if no bit is set).
+         */
+        static Container of(long[] words) {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            if (count == 0) {
+                return null;
+            }
+            if (count * Character.BYTES >= BITMAP_BYTES) {
+                return new BitmapContainer(words, count);
+            }
+            char[] values = new char[count];
+            int position = 0;
+            for (int w = 0; w < words.length; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    values[position++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                }
+            }
+            return of(values, count);
+        }
+
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        /**
+         * Writes all values (combined with the given upper bits) to <code>target</code>, starting at
+         * <code>position</code>, and returns the position after the last written value.
+         */
+        abstract int toArray(int high, int[] target, int position);
+
+        abstract void orInto(long[] words);
+
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        private final char[] values;
+
+        private ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, value) >= 0;
+        }
+
+        @Override
+        int toArray(int high, int[] target, int position) {
+            for (char value : values) {
+                target[position++] = high | value;
+            }
+            return position;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (char value : values) {
+                words[value >>> 6] |= 1L << value;
+            }
+        }
+
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        private final long[] words;
+        private final int cardinality;
+
+        private BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int toArray(int high, int[] target, int position) {
+            for (int w = 0; w < words.length; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    target[position++] = high | ((w << 6) + Long.numberOfTrailingZeros(word));
+                }
+            }
+            return position;
+        }
+
+        @Override
+        void orInto(long[] target) {
+            for (int w = 0; w < words.length; w++) {
+                target[w] |= words[w];
+            }
+        }
+
+    }
+
+    private static final class RunContainer extends Container {
+
+        private final char[] starts;
+        private final char[] lengths; // number of values in each run minus one
+        private final int cardinality;
+
+        private RunContainer(char[] starts, char[] lengths, int cardinality) {
+            this.starts = starts;
+            this.lengths = lengths;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            int i = Arrays.binarySearch(starts, value);
+            if (i >= 0) {
+                return true;
+            }
+            int run = -i - 2; // last run starting before value
+            return run >= 0 && value <= starts[run] + lengths[run];
+        }
+
+        @Override
+        int toArray(int high, int[] target, int position) {
+            for (int run = 0; run < starts.length; run++) {
+                int end = starts[run] + lengths[run];
+                for (int value = starts[run]; value <= end; value++) {
+                    target[position++] = high | value;
+                }
+            }
+            return position;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int run = 0; run < starts.length; run++) {
+                int end = starts[run] + lengths[run];
+                for (int value = starts[run]; value <= end; value++) {
+                    words[value >>> 6] |= 1L << value;
+                }
+            }
+        }
+
+    }
+
+}
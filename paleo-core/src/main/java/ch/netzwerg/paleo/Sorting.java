@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo;
+
+import io.vavr.collection.IndexedSeq;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Computes sort permutations (i.e. row indexes in sort order). Key columns are applied from the least to the most
+ * significant one, each by a stable sort of the current permutation. Primitive keys are mapped to unsigned 64-bit
+ * integers and sorted by an LSD radix sort, strings (which have no fixed-width key) by a merge sort on their raw bytes.
+ */
+final class Sorting {
+
+    private static final int DIGIT_BITS = 8;
+    private static final int DIGIT_COUNT = Long.SIZE / DIGIT_BITS;
+    private static final int RADIX = 1 << DIGIT_BITS;
+
+    private Sorting() {
+    }
+
+    static int[] permutation(IndexedSeq<Column<?>> keyColumns, int rowCount, boolean descending) {
+        for (Column<?> column : keyColumns) {
+            if (column instanceof GenericColumn) {
+                ColumnId id = column.getId();
+                String msg = String.format("Cannot sort by %s column '%s'", id.getType().getDescription(), id.getName());
+                throw new IllegalArgumentException(msg);
+            }
+        }
+        int[] rows = new int[rowCount];
+        Arrays.setAll(rows, i -> i);
+        for (Column<?> column : keyColumns.reverse()) {
+            rows = sort(column, rows, descending);
+        }
+        return rows;
+    }
+
+    /**
+     * Stably sorts the given rows by the values of the given column (missing values last).
+     */
+    private static int[] sort(Column<?> column, int[] rows, boolean descending) {
+        int[] nonNullRows = new int[rows.length];
+        int[] nullRows = new int[rows.length];
+        int nonNullCount = 0;
+        int nullCount = 0;
+        for (int row : rows) {
+            if (isNull(column, row)) {
+                nullRows[nullCount++] = row;
+            } else {
+                nonNullRows[nonNullCount++] = row;
+            }
+        }
+        nonNullRows = Arrays.copyOf(nonNullRows, nonNullCount);
+        int[] sortedRows;
+        if (column instanceof StringColumn) {
+            StringColumn strings = (StringColumn) column;
+            RowComparator comparator = descending ? (a, b) -> strings.compareAt(b, strings, a) : (a, b) -> strings.compareAt(a, strings, b);
+            sortedRows = mergeSort(nonNullRows, comparator);
+        } else if (column instanceof TimestampColumn) {
+            TimestampColumn timestamps = (TimestampColumn) column;
+            sortedRows = radixSort(nonNullRows, keys(nonNullRows, row -> timestamps.getNanoAt(row), descending));
+            sortedRows = radixSort(sortedRows, keys(sortedRows, row -> timestamps.getEpochSecondAt(row) ^ Long.MIN_VALUE, descending));
+        } else {
+            sortedRows = radixSort(nonNullRows, keys(nonNullRows, keyFunction(column), descending));
+        }
+        System.arraycopy(nullRows, 0, rows, nonNullCount, nullCount);
+        System.arraycopy(sortedRows, 0, rows, 0, nonNullCount);
+        return rows;
+    }
+
+    private static boolean isNull(Column<?> column, int row) {
+        if (column instanceof IntColumn) {
+            return ((IntColumn) column).isNull(row);
+        } else if (column instanceof LongColumn) {
+            return ((LongColumn) column).isNull(row);
+        } else if (column instanceof DoubleColumn) {
+            return ((DoubleColumn) column).isNull(row);
+        } else if (column instanceof BooleanColumn) {
+            return ((BooleanColumn) column).isNull(row);
+        } else if (column instanceof StringColumn) {
+            return ((StringColumn) column).isNull(row);
+        } else if (column instanceof TimestampColumn) {
+            return ((TimestampColumn) column).isNull(row);
+        }
+        return ((CategoryColumn) column).getValueAt(row) == null;
+    }
+
+    /**
+     * Maps the values of a column to unsigned keys which sort in the same order as the values.
+     */
+    private static KeyFunction keyFunction(Column<?> column) {
+        if (column instanceof IntColumn) {
+            IntColumn ints = (IntColumn) column;
+            return row -> (ints.getValueAt(row) ^ Integer.MIN_VALUE) & 0xFFFF_FFFFL;
+        } else if (column instanceof LongColumn) {
+            LongColumn longs = (LongColumn) column;
+            return row -> longs.getValueAt(row) ^ Long.MIN_VALUE;
+        } else if (column instanceof DoubleColumn) {
+            DoubleColumn doubles = (DoubleColumn) column;
+            return row -> {
+                long bits = Double.doubleToLongBits(doubles.getValueAt(row)); // same order as Double.compare
+                return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+            };
+        } else if (column instanceof BooleanColumn) {
+            BooleanColumn booleans = (BooleanColumn) column;
+            return row -> booleans.getValueAt(row) ? 1L : 0L;
+        }
+        CategoryColumn categories = (CategoryColumn) column;
+        int[] rankPerCode = rankCategories(categories);
+        return row -> rankPerCode[categories.getCodeAt(row)];
+    }
+
+    /**
+     * Returns the position of each category (indexed by code) in the code point order of all categories (which is the
+     * order of equal values in a {@link StringColumn}).
+     */
+    private static int[] rankCategories(CategoryColumn column) {
+        Integer[] codes = new Integer[column.getCategoryCount()];
+        Arrays.setAll(codes, code -> code);
+        Arrays.sort(codes, Comparator.comparing(column::getCategory, Comparator.nullsLast(StringColumn::compareCodePoints)));
+        int[] rankPerCode = new int[codes.length];
+        for (int rank = 0; rank < codes.length; rank++) {
+            rankPerCode[codes[rank]] = rank;
+        }
+        return rankPerCode;
+    }
+
+    private static long[] keys(int[] rows, KeyFunction keyFunction, boolean descending) {
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            long key = keyFunction.keyAt(rows[i]);
+            keys[i] = descending ? ~key : key;
+        }
+        return keys;
+    }
+
+    /**
+     * Stable LSD radix sort of rows by their (unsigned) keys, one pass per 8-bit digit. Digits which are the same for
+     * all keys (e.g. the upper half of int keys) are skipped.
+     */
+    static int[] radixSort(int[] rows, long[] keys) {
+        int n = rows.length;
+        if (n < 2) {
+            return rows;
+        }
+        int[][] counts = new int[DIGIT_COUNT][RADIX];
+        for (long key : keys) {
+            for (int digit = 0; digit < DIGIT_COUNT; digit++) {
+                counts[digit][(int) (key >>> (digit * DIGIT_BITS)) & (RADIX - 1)]++;
+            }
+        }
+        int[] rowsBuffer = new int[n];
+        long[] keysBuffer = new long[n];
+        for (int digit = 0; digit < DIGIT_COUNT; digit++) {
+            int shift = digit * DIGIT_BITS;
+            int[] offsets = counts[digit];
+            if (offsets[(int) (keys[0] >>> shift) & (RADIX - 1)] == n) {
+                continue;
+            }
+            int offset = 0;
+            for (int bucket = 0; bucket < RADIX; bucket++) {
+                int count = offsets[bucket];
+                offsets[bucket] = offset;
+                offset += count;
+            }
+            for (int i = 0; i < n; i++) {
+                int target = offsets[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+                rowsBuffer[target] = rows[i];
+                keysBuffer[target] = keys[i];
+            }
+            int[] sortedRows = rowsBuffer;
+            rowsBuffer = rows;
+            rows = sortedRows;
+            long[] sortedKeys = keysBuffer;
+            keysBuffer = keys;
+            keys = sortedKeys;
+        }
+        return rows;
+    }
+
+    /**
+     * Stable merge sort (for keys which cannot be mapped to fixed-width integers), without boxing row indexes.
+     */
+    private static int[] mergeSort(int[] rows, RowComparator comparator) {
+        int[] buffer = rows.clone();
+        mergeSort(buffer, rows, 0, rows.length, comparator);
+        return rows;
+    }
+
+    /**
+     * Sorts <code>source[from, to)</code> into <code>target[from, to)</code> (both need to contain the same rows).
+     */
+    private static void mergeSort(int[] source, int[] target, int from, int to, RowComparator comparator) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(target, source, from, middle, comparator);
+        mergeSort(target, source, middle, to, comparator);
+        for (int i = from, left = from, right = middle; i < to; i++) {
+            if (right >= to || (left < middle && comparator.compare(source[left], source[right]) <= 0)) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
+        }
+    }
+
+    private interface KeyFunction {
+
+        long keyAt(int rowIndex);
+
+    }
+
+    private interface RowComparator {
+
+        int compare(int rowIndex, int otherRowIndex);
+
+    }
+
+}
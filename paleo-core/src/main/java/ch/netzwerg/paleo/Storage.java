@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo;
+
+/**
+ * Where column builders put the values of the columns they build. Only applies to numeric (i.e. Int, Long, Double)
+ * columns, all other column types always live on the heap.
+ */
+public enum Storage {
+
+    /**
+     * Values are stored in regular Java arrays.
+     */
+    HEAP,
+
+    /**
+     * Values are stored in direct (i.e. off-heap) memory, which neither inflates the heap nor needs to be traversed by
+     * the garbage collector. Such columns should be released explicitly once they are no longer used.
+     */
+    OFF_HEAP;
+
+    /**
+     * The system property which globally configures the default storage (<code>heap</code> or <code>off-heap</code>).
+     */
+    public static final String PROPERTY_NAME = "paleo.storage";
+
+    private static final Storage DEFAULT = parse(System.getProperty(PROPERTY_NAME, "heap"));
+
+    public static Storage getDefault() {
+        return DEFAULT;
+    }
+
+    private static Storage parse(String description) {
+        switch (description.trim().toLowerCase()) {
+            case "heap":
+                return HEAP;
+            case "off-heap":
+                return OFF_HEAP;
+            default:
+                String msg = String.format("Unknown storage '%s' (expected 'heap' or 'off-heap')", description);
+                throw new IllegalArgumentException(msg);
+        }
+    }
+
+}
@@ -15,18 +15,43 @@
 package ch.netzwerg.paleo;
 
 import ch.netzwerg.paleo.impl.MetaDataBuilder;
+import io.vavr.Lazy;
 import io.vavr.collection.Array;
+import io.vavr.collection.IndexedSeq;
 import io.vavr.collection.Map;
 import io.vavr.collection.Stream;
+import io.vavr.control.Option;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
 
 import static ch.netzwerg.paleo.ColumnIds.StringColumnId;
 
-public final class StringColumn extends AbstractColumn<String, StringColumnId> {
+/**
+ * Stores all values UTF-8 encoded in one contiguous byte arena, plus an offset table marking where each row starts.
+ * {@link String} objects are only materialized on access, comparison and hashing work on the raw bytes.
+ */
+public final class StringColumn implements Column<StringColumnId> {
+
+    private final StringColumnId id;
+    private final byte[] arena; // trimmed when built, only slices share it (and may use just part of it)
+    private final int[] offsets; // row i spans [offsets[offset + i], offsets[offset + i + 1])
+    private final int offset; // index of the first row in offsets/nulls (which may be shared with other columns)
+    private final int rowCount;
+    private final BitSet nulls; // null if there are no null values
+    private final Map<String, String> metaData;
+    private final Lazy<ColumnStatistics<String>> statistics;
 
-    private StringColumn(StringColumnId id, Array<String> values, Map<String, String> metaData) {
-        super(id, values, metaData);
+    private StringColumn(StringColumnId id, byte[] arena, int[] offsets, int offset, int rowCount, BitSet nulls, Map<String, String> metaData) {
+        this.id = id;
+        this.arena = arena;
+        this.offsets = offsets;
+        this.offset = offset;
+        this.rowCount = rowCount;
+        this.nulls = nulls;
+        this.metaData = metaData;
+        this.statistics = Lazy.of(this::computeStatistics);
     }
 
     public static StringColumn of(StringColumnId id, String value) {
@@ -45,21 +70,284 @@ public final class StringColumn extends AbstractColumn<String, StringColumnId> {
         return new Builder(id);
     }
 
+    @Override
+    public StringColumnId getId() {
+        return id;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public Map<String, String> getMetaData() {
+        return metaData;
+    }
+
+    public String getValueAt(int rowIndex) {
+        if (isNull(rowIndex)) {
+            return null;
+        }
+        int from = start(rowIndex);
+        return new String(arena, from, end(rowIndex) - from, StandardCharsets.UTF_8);
+    }
+
+    public boolean isNull(int rowIndex) {
+        Checks.checkRowIndex(rowIndex, rowCount);
+        return nulls != null && nulls.get(offset + rowIndex);
+    }
+
+    public int getNullCount() {
+        if (nulls == null) {
+            return 0;
+        }
+        int count = 0;
+        int end = offset + rowCount;
+        for (int i = nulls.nextSetBit(offset); i >= 0 && i < end; i = nulls.nextSetBit(i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the null count, minimum, maximum (in the order of {@link #compareAt(int, StringColumn, int)}), sortedness,
+     * and estimated number of distinct values of this column, computed in a single pass over the raw bytes on first
+     * access.
+     */
+    public ColumnStatistics<String> getStatistics() {
+        return statistics.get();
+    }
+
+    /**
+     * Materializes all values (prefer {@link #getValueAt(int)} for large columns).
+     */
+    public IndexedSeq<String> getValues() {
+        return Array.ofAll(valueStream());
+    }
+
+    public Stream<String> valueStream() {
+        return Stream.range(0, rowCount).map(this::getValueAt);
+    }
+
+    /**
+     * Returns the length of the UTF-8 encoded value at the given row (<code>0</code> for <code>null</code>).
+     */
+    public int getByteLengthAt(int rowIndex) {
+        Checks.checkRowIndex(rowIndex, rowCount);
+        return end(rowIndex) - start(rowIndex);
+    }
+
+    /**
+     * Hashes the raw bytes of the given row without materializing a {@link String}. Equal values have equal hash codes
+     * (across columns), <code>null</code> hashes to <code>0</code>.
+     */
+    public int hashCodeAt(int rowIndex) {
+        if (isNull(rowIndex)) {
+            return 0;
+        }
+        int hash = 1;
+        for (int i = start(rowIndex), to = end(rowIndex); i < to; i++) {
+            hash = 31 * hash + arena[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Compares the raw bytes of the given row to those of a row in another (or the same) column, without materializing
+     * any {@link String}s.
+     */
+    public boolean equalsAt(int rowIndex, StringColumn other, int otherRowIndex) {
+        boolean isNull = isNull(rowIndex);
+        boolean otherIsNull = other.isNull(otherRowIndex);
+        if (isNull || otherIsNull) {
+            return isNull && otherIsNull;
+        }
+        int from = start(rowIndex);
+        int length = end(rowIndex) - from;
+        int otherFrom = other.start(otherRowIndex);
+        int otherLength = other.end(otherRowIndex) - otherFrom;
+        if (length != otherLength) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (arena[from + i] != other.arena[otherFrom + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lexicographically compares the raw bytes of the given row to those of a row in another (or the same) column,
+     * without materializing any {@link String}s. The resulting order is the code point order of the values (which only
+     * differs from {@link String#compareTo(String)} for supplementary characters). <code>null</code> sorts last.
+     */
+    public int compareAt(int rowIndex, StringColumn other, int otherRowIndex) {
+        boolean isNull = isNull(rowIndex);
+        boolean otherIsNull = other.isNull(otherRowIndex);
+        if (isNull || otherIsNull) {
+            return Boolean.compare(isNull, otherIsNull);
+        }
+        int from = start(rowIndex);
+        int length = end(rowIndex) - from;
+        int otherFrom = other.start(otherRowIndex);
+        int otherLength = other.end(otherRowIndex) - otherFrom;
+        int commonLength = Math.min(length, otherLength);
+        for (int i = 0; i < commonLength; i++) {
+            int diff = Byte.toUnsignedInt(arena[from + i]) - Byte.toUnsignedInt(other.arena[otherFrom + i]);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - otherLength;
+    }
+
+    /**
+     * Compares two strings by code point, i.e. in the same order as {@link #compareAt(int, StringColumn, int)} compares
+     * their UTF-8 encodings.
+     */
+    static int compareCodePoints(String value, String other) {
+        int i = 0;
+        while (i < value.length() && i < other.length()) {
+            int codePoint = value.codePointAt(i);
+            int otherCodePoint = other.codePointAt(i);
+            if (codePoint != otherCodePoint) {
+                return Integer.compare(codePoint, otherCodePoint);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return value.length() - other.length();
+    }
+
+    /**
+     * Returns a view which shares the arena and offset table of this column.
+     */
+    @Override
+    public StringColumn slice(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, rowCount);
+        return new StringColumn(id, arena, offsets, offset + fromRowIndex, toRowIndex - fromRowIndex, nulls, metaData);
+    }
+
+    /**
+     * Copies the raw bytes of the given rows into a new arena (no {@link String}s are materialized).
+     */
+    @Override
+    public StringColumn gather(int[] rowIndexes) {
+        long byteCount = 0;
+        for (int rowIndex : rowIndexes) {
+            if (rowIndex != -1) {
+                byteCount += getByteLengthAt(rowIndex);
+            }
+        }
+        if (byteCount > Integer.MAX_VALUE) {
+            throw new IllegalStateException(String.format("Column '%s' exceeds the maximum size of 2 GB", id.getName()));
+        }
+        byte[] gatheredArena = new byte[(int) byteCount];
+        int[] gatheredOffsets = new int[rowIndexes.length + 1];
+        BitSet gatheredNulls = null;
+        int position = 0;
+        for (int i = 0; i < rowIndexes.length; i++) {
+            int rowIndex = rowIndexes[i];
+            if (rowIndex == -1 || (nulls != null && nulls.get(offset + rowIndex))) {
+                if (gatheredNulls == null) {
+                    gatheredNulls = new BitSet();
+                }
+                gatheredNulls.set(i);
+            }
+            if (rowIndex != -1) {
+                int from = start(rowIndex);
+                int length = end(rowIndex) - from;
+                System.arraycopy(arena, from, gatheredArena, position, length);
+                position += length;
+            }
+            gatheredOffsets[i + 1] = position;
+        }
+        return new StringColumn(id, gatheredArena, gatheredOffsets, 0, rowIndexes.length, gatheredNulls, metaData);
+    }
+
+    private ColumnStatistics<String> computeStatistics() {
+        DistinctCounter distinctCounter = new DistinctCounter();
+        int nullCount = getNullCount();
+        int minRowIndex = -1;
+        int maxRowIndex = -1;
+        boolean sorted = nullCount == 0;
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            if (isNull(rowIndex)) {
+                continue;
+            }
+            if (minRowIndex == -1 || compareAt(rowIndex, this, minRowIndex) < 0) {
+                minRowIndex = rowIndex;
+            }
+            if (maxRowIndex == -1 || compareAt(rowIndex, this, maxRowIndex) > 0) {
+                maxRowIndex = rowIndex;
+            }
+            sorted &= rowIndex == 0 || compareAt(rowIndex - 1, this, rowIndex) <= 0;
+            distinctCounter.add(hashCodeAt(rowIndex));
+        }
+        Option<String> min = minRowIndex == -1 ? Option.none() : Option.of(getValueAt(minRowIndex));
+        Option<String> max = maxRowIndex == -1 ? Option.none() : Option.of(getValueAt(maxRowIndex));
+        return new ColumnStatistics<>(nullCount, min, max, sorted, distinctCounter.estimate(), false);
+    }
+
+    private int start(int rowIndex) {
+        return offsets[offset + rowIndex];
+    }
+
+    private int end(int rowIndex) {
+        return offsets[offset + rowIndex + 1];
+    }
+
     public static final class Builder implements Column.Builder<String, StringColumn> {
 
+        private static final int DEFAULT_CAPACITY = 16;
+        private static final int MAX_BYTES_PER_CHAR = 3; // UTF-16 surrogate pairs (2 chars) take 4 bytes
+
         private final StringColumnId id;
-        private final java.util.List<String> values;
+        private byte[] arena;
+        private int arenaSize;
+        private int[] offsets;
+        private int size;
+        private BitSet nulls;
         private final MetaDataBuilder metaDataBuilder;
 
         private Builder(StringColumnId id) {
             this.id = id;
-            this.values = new ArrayList<>();
+            this.arena = new byte[DEFAULT_CAPACITY * 8];
+            this.offsets = new int[DEFAULT_CAPACITY + 1];
             this.metaDataBuilder = new MetaDataBuilder();
         }
 
         @Override
         public Builder add(String value) {
-            values.add(value);
+            if (size + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length + (offsets.length >> 1) + 1);
+            }
+            if (value == null) {
+                if (nulls == null) {
+                    nulls = new BitSet();
+                }
+                nulls.set(size);
+            } else {
+                ensureArenaCapacity((long) arenaSize + (long) value.length() * MAX_BYTES_PER_CHAR);
+                arenaSize = encodeUtf8(value, arena, arenaSize);
+            }
+            offsets[++size] = arenaSize;
+            return this;
+        }
+
+        /**
+         * Adds a value given as UTF-8 encoded bytes, which are copied as is (i.e. without decoding them to a
+         * {@link String} first).
+         */
+        public Builder addUtf8(byte[] bytes, int offset, int length) {
+            if (size + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length + (offsets.length >> 1) + 1);
+            }
+            ensureArenaCapacity((long) arenaSize + length);
+            System.arraycopy(bytes, offset, arena, arenaSize, length);
+            arenaSize += length;
+            offsets[++size] = arenaSize;
             return this;
         }
 
@@ -68,7 +356,34 @@ public final class StringColumn extends AbstractColumn<String, StringColumnId> {
         }
 
         public Builder addAll(Iterable<String> values) {
-            this.values.addAll(Stream.ofAll(values).toJavaList());
+            values.forEach(this::add);
+            return this;
+        }
+
+        /**
+         * Appends all rows of the given column by copying its raw bytes (e.g. to concatenate columns which were built
+         * in chunks).
+         */
+        public Builder addAll(StringColumn column) {
+            int rowCount = column.rowCount;
+            int from = column.start(0);
+            int byteCount = rowCount == 0 ? 0 : column.end(rowCount - 1) - from;
+            ensureArenaCapacity((long) arenaSize + byteCount);
+            System.arraycopy(column.arena, from, arena, arenaSize, byteCount);
+            if (size + rowCount >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, Math.max(size + rowCount + 1, offsets.length + (offsets.length >> 1) + 1));
+            }
+            for (int i = 0; i < rowCount; i++) {
+                offsets[size + i + 1] = arenaSize + column.end(i) - from;
+                if (column.nulls != null && column.nulls.get(column.offset + i)) {
+                    if (nulls == null) {
+                        nulls = new BitSet();
+                    }
+                    nulls.set(size + i);
+                }
+            }
+            arenaSize += byteCount;
+            size += rowCount;
             return this;
         }
 
@@ -84,11 +399,60 @@ public final class StringColumn extends AbstractColumn<String, StringColumnId> {
             return this;
         }
 
+        /**
+         * Copies arena and offsets trimmed to their used length, so the column holds no spare capacity and is not
+         * affected by values added afterwards. Only slices of the built column share its arena.
+         */
         @Override
         public StringColumn build() {
-            return new StringColumn(id, Array.ofAll(values), metaDataBuilder.build());
+            BitSet builtNulls = nulls == null ? null : (BitSet) nulls.clone();
+            // trimmed copies, as the builder over-allocates (by up to 1.5x, plus room for the worst-case encoding)
+            byte[] builtArena = Arrays.copyOf(arena, arenaSize);
+            int[] builtOffsets = Arrays.copyOf(offsets, size + 1);
+            return new StringColumn(id, builtArena, builtOffsets, 0, size, builtNulls, metaDataBuilder.build());
+        }
+
+        private void ensureArenaCapacity(long minCapacity) {
+            if (minCapacity > Integer.MAX_VALUE) {
+                throw new IllegalStateException(String.format("Column '%s' exceeds the maximum size of 2 GB", id.getName()));
+            }
+            if (minCapacity > arena.length) {
+                long capacity = Math.max(minCapacity, arena.length + (arena.length >> 1));
+                arena = Arrays.copyOf(arena, (int) Math.min(capacity, Integer.MAX_VALUE));
+            }
+        }
+
+        /**
+         * Encodes without allocating intermediate byte arrays (unpaired surrogates become '?', like in the JDK).
+         */
+        private static int encodeUtf8(String value, byte[] target, int position) {
+            for (int i = 0, length = value.length(); i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    target[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    target[position++] = (byte) (0xC0 | (c >> 6));
+                    target[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    int codePoint = Character.codePointAt(value, i);
+                    if (Character.isSupplementaryCodePoint(codePoint)) {
+                        target[position++] = (byte) (0xF0 | (codePoint >> 18));
+                        target[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                        target[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                        target[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                        i++;
+                    } else {
+                        target[position++] = '?';
+                    }
+                } else {
+                    target[position++] = (byte) (0xE0 | (c >> 12));
+                    target[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    target[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            return position;
         }
 
     }
 
-}
\ No newline at end of file
+}
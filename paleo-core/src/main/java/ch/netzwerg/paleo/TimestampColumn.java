@@ -15,19 +15,51 @@
 package ch.netzwerg.paleo;
 
 import ch.netzwerg.paleo.impl.MetaDataBuilder;
+import io.vavr.Lazy;
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
 import io.vavr.collection.Array;
+import io.vavr.collection.IndexedSeq;
 import io.vavr.collection.Map;
 import io.vavr.collection.Stream;
+import io.vavr.control.Option;
 
 import java.time.Instant;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 import static ch.netzwerg.paleo.ColumnIds.TimestampColumnId;
 
-public final class TimestampColumn extends AbstractColumn<Instant, TimestampColumnId> {
+/**
+ * Stores timestamps as primitive epoch seconds plus nano adjustments (the latter only if any value has sub-second
+ * precision). {@link Instant} objects are only materialized on access.
+ */
+public final class TimestampColumn implements Column<TimestampColumnId> {
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final TimestampColumnId id;
+    private final int offset; // index of the first row in epochSeconds/nanos/nulls (which may be shared with other columns)
+    private final int rowCount;
+    private final long[] epochSeconds;
+    private final int[] nanos; // null if all values are whole seconds
+    private final BitSet nulls; // null if there are no missing values
+    private final boolean sorted;
+    private final Map<String, String> metaData;
+    private final Lazy<ColumnStatistics<Instant>> statistics;
 
-    private TimestampColumn(TimestampColumnId id, Array<Instant> values, Map<String, String> metaData) {
-        super(id, values, metaData);
+    private TimestampColumn(TimestampColumnId id, int offset, int rowCount, long[] epochSeconds, int[] nanos, BitSet nulls, boolean sorted, Map<String, String> metaData) {
+        this.id = id;
+        this.offset = offset;
+        this.rowCount = rowCount;
+        this.epochSeconds = epochSeconds;
+        this.nanos = nanos;
+        this.nulls = nulls;
+        this.sorted = sorted;
+        this.metaData = metaData;
+        this.statistics = Lazy.of(this::computeStatistics);
     }
 
     public static TimestampColumn of(TimestampColumnId id, Instant value) {
@@ -46,21 +78,269 @@ public final class TimestampColumn extends AbstractColumn<Instant, TimestampColu
         return new Builder(id);
     }
 
+    @Override
+    public TimestampColumnId getId() {
+        return id;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public Map<String, String> getMetaData() {
+        return metaData;
+    }
+
+    /**
+     * Returns the value at the given row (<code>null</code> for missing values).
+     */
+    public Instant getValueAt(int rowIndex) {
+        if (isNull(rowIndex)) {
+            return null;
+        }
+        return Instant.ofEpochSecond(epochSeconds[offset + rowIndex], getNanoAt(rowIndex));
+    }
+
+    public boolean isNull(int rowIndex) {
+        Checks.checkRowIndex(rowIndex, rowCount);
+        return nulls != null && nulls.get(offset + rowIndex);
+    }
+
+    public int getNullCount() {
+        if (nulls == null) {
+            return 0;
+        }
+        int count = 0;
+        int end = offset + rowCount;
+        for (int i = nulls.nextSetBit(offset); i >= 0 && i < end; i = nulls.nextSetBit(i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    public long getEpochSecondAt(int rowIndex) {
+        Checks.checkRowIndex(rowIndex, rowCount);
+        return epochSeconds[offset + rowIndex];
+    }
+
+    public int getNanoAt(int rowIndex) {
+        Checks.checkRowIndex(rowIndex, rowCount);
+        return nanos == null ? 0 : nanos[offset + rowIndex];
+    }
+
+    public long getEpochMilliAt(int rowIndex) {
+        return Math.addExact(Math.multiplyExact(getEpochSecondAt(rowIndex), 1000L), getNanoAt(rowIndex) / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Materializes all values (prefer the primitive accessors for large columns).
+     */
+    public IndexedSeq<Instant> getValues() {
+        return Array.ofAll(valueStream());
+    }
+
+    public Stream<Instant> valueStream() {
+        return Stream.range(0, getRowCount()).map(this::getValueAt);
+    }
+
+    /**
+     * Streams the epoch seconds of all values (<code>0</code> for missing values).
+     */
+    public LongStream epochSecondStream() {
+        return Arrays.stream(epochSeconds, offset, offset + rowCount);
+    }
+
+    /**
+     * Streams the epoch milliseconds of all values (<code>0</code> for missing values).
+     */
+    public LongStream epochMilliStream() {
+        return IntStream.range(0, getRowCount()).mapToLong(this::getEpochMilliAt);
+    }
+
+    /**
+     * Returns a view which shares the values of this column.
+     */
+    @Override
+    public TimestampColumn slice(int fromRowIndex, int toRowIndex) {
+        Checks.checkRowRange(fromRowIndex, toRowIndex, rowCount);
+        return new TimestampColumn(id, offset + fromRowIndex, toRowIndex - fromRowIndex, epochSeconds, nanos, nulls, sorted, metaData);
+    }
+
+    @Override
+    public TimestampColumn gather(int[] rowIndexes) {
+        long[] gatheredEpochSeconds = new long[rowIndexes.length];
+        int[] gatheredNanos = nanos == null ? null : new int[rowIndexes.length];
+        BitSet gatheredNulls = null;
+        for (int i = 0; i < rowIndexes.length; i++) {
+            if (rowIndexes[i] == -1) {
+                if (gatheredNulls == null) {
+                    gatheredNulls = new BitSet();
+                }
+                gatheredNulls.set(i);
+                continue;
+            }
+            Checks.checkRowIndex(rowIndexes[i], rowCount);
+            int index = offset + rowIndexes[i];
+            gatheredEpochSeconds[i] = epochSeconds[index];
+            if (gatheredNanos != null) {
+                gatheredNanos[i] = nanos[index];
+            }
+            if (nulls != null && nulls.get(index)) {
+                if (gatheredNulls == null) {
+                    gatheredNulls = new BitSet();
+                }
+                gatheredNulls.set(i);
+            }
+        }
+        boolean gatheredSorted = isSorted(gatheredEpochSeconds, gatheredNanos, gatheredNulls, rowIndexes.length);
+        return new TimestampColumn(id, 0, rowIndexes.length, gatheredEpochSeconds, gatheredNanos, gatheredNulls, gatheredSorted, metaData);
+    }
+
+    /**
+     * Returns <code>true</code> if no value is missing and values never decrease from one row to the next (e.g. for
+     * time-ordered event data). Determined once the column is built, i.e. in constant time.
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Returns the row range <code>[fromRowIndex, toRowIndex)</code> which contains exactly the values in
+     * <code>[from, to)</code>, found by binary search (i.e. in logarithmic time). The result can be used to slice a
+     * data frame (see {@link DataFrame#slice(TimestampColumnId, Instant, Instant)}).
+     *
+     * @throws IllegalStateException if the column is not sorted (see {@link #isSorted()})
+     */
+    public Tuple2<Integer, Integer> rangeIndexes(Instant from, Instant to) {
+        if (!sorted) {
+            throw new IllegalStateException(String.format("Column '%s' is not sorted", id.getName()));
+        }
+        int fromRowIndex = lowerBound(from);
+        int toRowIndex = Math.max(fromRowIndex, lowerBound(to));
+        return Tuple.of(fromRowIndex, toRowIndex);
+    }
+
+    /**
+     * Returns the null count, minimum, maximum, sortedness (see {@link #isSorted()}), and estimated number of distinct
+     * values of this column, computed in a single pass over the primitive values on first access.
+     */
+    public ColumnStatistics<Instant> getStatistics() {
+        return statistics.get();
+    }
+
+    private ColumnStatistics<Instant> computeStatistics() {
+        DistinctCounter distinctCounter = new DistinctCounter();
+        int minIndex = -1;
+        int maxIndex = -1;
+        for (int index = offset; index < offset + rowCount; index++) {
+            if (nulls != null && nulls.get(index)) {
+                continue;
+            }
+            if (minIndex == -1 || compare(index, minIndex) < 0) {
+                minIndex = index;
+            }
+            if (maxIndex == -1 || compare(index, maxIndex) > 0) {
+                maxIndex = index;
+            }
+            distinctCounter.add(epochSeconds[index] * 1_000_000_000L + (nanos == null ? 0 : nanos[index]));
+        }
+        Option<Instant> min = minIndex == -1 ? Option.none() : Option.of(getValueAt(minIndex - offset));
+        Option<Instant> max = maxIndex == -1 ? Option.none() : Option.of(getValueAt(maxIndex - offset));
+        return new ColumnStatistics<>(getNullCount(), min, max, sorted, distinctCounter.estimate(), false);
+    }
+
+    /**
+     * Compares the values at the given indexes of the (shared) value arrays.
+     */
+    private int compare(int index, int otherIndex) {
+        int result = Long.compare(epochSeconds[index], epochSeconds[otherIndex]);
+        return result != 0 || nanos == null ? result : Integer.compare(nanos[index], nanos[otherIndex]);
+    }
+
+    /**
+     * Returns the first row whose value is not before the given one (or the row count if there is no such row).
+     */
+    private int lowerBound(Instant value) {
+        long epochSecond = value.getEpochSecond();
+        int nano = value.getNano();
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int index = offset + middle;
+            long middleEpochSecond = epochSeconds[index];
+            if (middleEpochSecond < epochSecond || (middleEpochSecond == epochSecond && (nanos == null ? 0 : nanos[index]) < nano)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isSorted(long[] epochSeconds, int[] nanos, BitSet nulls, int length) {
+        if (nulls != null && !nulls.isEmpty()) {
+            return false;
+        }
+        for (int i = 1; i < length; i++) {
+            long previous = epochSeconds[i - 1];
+            if (epochSeconds[i] < previous || (epochSeconds[i] == previous && nanos != null && nanos[i] < nanos[i - 1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static final class Builder implements Column.Builder<Instant, TimestampColumn> {
 
+        private static final int DEFAULT_CAPACITY = 16;
+
         private final TimestampColumnId id;
-        private final java.util.List<Instant> values;
+        private long[] epochSeconds;
+        private int[] nanos;
+        private int size;
+        private BitSet nulls;
         private final MetaDataBuilder metaDataBuilder;
 
         private Builder(TimestampColumnId id) {
             this.id = id;
-            this.values = new ArrayList<>();
+            this.epochSeconds = new long[DEFAULT_CAPACITY];
             this.metaDataBuilder = new MetaDataBuilder();
         }
 
+        /**
+         * Adds the given value, or a missing value if <code>value</code> is <code>null</code>.
+         */
         @Override
         public Builder add(Instant value) {
-            values.add(value);
+            if (value == null) {
+                return addNull();
+            }
+            if (size == epochSeconds.length) {
+                grow();
+            }
+            epochSeconds[size] = value.getEpochSecond();
+            int nano = value.getNano();
+            if (nano != 0) {
+                if (nanos == null) {
+                    nanos = new int[epochSeconds.length];
+                }
+                nanos[size] = nano;
+            }
+            size++;
+            return this;
+        }
+
+        public Builder addNull() {
+            if (size == epochSeconds.length) {
+                grow();
+            }
+            if (nulls == null) {
+                nulls = new BitSet();
+            }
+            nulls.set(size++);
             return this;
         }
 
@@ -69,7 +349,35 @@ public final class TimestampColumn extends AbstractColumn<Instant, TimestampColu
         }
 
         public Builder addAll(Iterable<Instant> values) {
-            this.values.addAll(Stream.ofAll(values).toJavaList());
+            values.forEach(this::add);
+            return this;
+        }
+
+        /**
+         * Appends all rows of the given column (e.g. to concatenate columns which were built in chunks).
+         */
+        public Builder addAll(TimestampColumn column) {
+            int rowCount = column.rowCount;
+            while (size + rowCount > epochSeconds.length) {
+                grow();
+            }
+            System.arraycopy(column.epochSeconds, column.offset, epochSeconds, size, rowCount);
+            if (column.nanos != null) {
+                if (nanos == null) {
+                    nanos = new int[epochSeconds.length];
+                }
+                System.arraycopy(column.nanos, column.offset, nanos, size, rowCount);
+            }
+            if (column.nulls != null) {
+                int end = column.offset + rowCount;
+                for (int i = column.nulls.nextSetBit(column.offset); i >= 0 && i < end; i = column.nulls.nextSetBit(i + 1)) {
+                    if (nulls == null) {
+                        nulls = new BitSet();
+                    }
+                    nulls.set(size + i - column.offset);
+                }
+            }
+            size += rowCount;
             return this;
         }
 
@@ -87,7 +395,19 @@ public final class TimestampColumn extends AbstractColumn<Instant, TimestampColu
 
         @Override
         public TimestampColumn build() {
-            return new TimestampColumn(id, Array.ofAll(values), metaDataBuilder.build());
+            long[] builtEpochSeconds = Arrays.copyOf(epochSeconds, size);
+            int[] builtNanos = nanos == null ? null : Arrays.copyOf(nanos, size);
+            BitSet builtNulls = nulls == null ? null : (BitSet) nulls.clone();
+            boolean sorted = isSorted(builtEpochSeconds, builtNanos, builtNulls, size);
+            return new TimestampColumn(id, 0, size, builtEpochSeconds, builtNanos, builtNulls, sorted, metaDataBuilder.build());
+        }
+
+        private void grow() {
+            int capacity = epochSeconds.length + (epochSeconds.length >> 1);
+            epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+            if (nanos != null) {
+                nanos = Arrays.copyOf(nanos, capacity);
+            }
         }
 
     }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo;
+
+import java.util.Arrays;
+
+/**
+ * Minimum and maximum of each block of {@link #BLOCK_SIZE} rows, which lets range queries skip blocks without a match
+ * (and take blocks which match entirely) without looking at individual values. Values are given as order-preserving
+ * <code>long</code> keys (see {@link #key(double)} for floating point values). Blocks without any non-missing value
+ * overlap no range.
+ */
+final class ZoneMap {
+
+    static final int BLOCK_SIZE = 1 << 16;
+
+    private final long[] mins;
+    private final long[] maxs;
+
+    private ZoneMap(long[] mins, long[] maxs) {
+        this.mins = mins;
+        this.maxs = maxs;
+    }
+
+    static Builder builder(int rowCount) {
+        return new Builder(rowCount);
+    }
+
+    /**
+     * Maps a double to a <code>long</code> with the same order (-0.0 is treated like 0.0, NaN sorts last).
+     */
+    static long key(double value) {
+        long bits = Double.doubleToLongBits(value + 0.0);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    int getBlockCount() {
+        return mins.length;
+    }
+
+    /**
+     * Returns <code>true</code> if some value of the given block may be in <code>[min, max]</code>.
+     */
+    boolean overlaps(int block, long min, long max) {
+        return mins[block] <= max && maxs[block] >= min;
+    }
+
+    /**
+     * Returns <code>true</code> if all non-missing values of the given block are in <code>[min, max]</code>.
+     */
+    boolean within(int block, long min, long max) {
+        return mins[block] >= min && maxs[block] <= max;
+    }
+
+    static final class Builder {
+
+        private final long[] mins;
+        private final long[] maxs;
+
+        private Builder(int rowCount) {
+            int blockCount = (rowCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            this.mins = new long[blockCount];
+            this.maxs = new long[blockCount];
+            Arrays.fill(mins, Long.MAX_VALUE);
+            Arrays.fill(maxs, Long.MIN_VALUE);
+        }
+
+        /**
+         * Adds the (non-missing) value of the given row.
+         */
+        void add(int rowIndex, long key) {
+            int block = rowIndex / BLOCK_SIZE;
+            if (key < mins[block]) {
+                mins[block] = key;
+            }
+            if (key > maxs[block]) {
+                maxs[block] = key;
+            }
+        }
+
+        ZoneMap build() {
+            return new ZoneMap(mins, maxs);
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo.impl;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Consumer;
+
+/**
+ * Allocates and explicitly frees direct memory (the JDK only frees direct buffers once they are garbage collected).
+ */
+public final class DirectMemory {
+
+    private static final Consumer<ByteBuffer> DEALLOCATOR = createDeallocator();
+
+    private DirectMemory() {
+    }
+
+    public static ByteBuffer allocate(long byteCount) {
+        if (byteCount > Integer.MAX_VALUE) {
+            String msg = String.format("Cannot allocate %d bytes of direct memory (max is %d)", byteCount, Integer.MAX_VALUE);
+            throw new IllegalArgumentException(msg);
+        }
+        return ByteBuffer.allocateDirect((int) byteCount).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Allocates direct memory which is shared by several views (e.g. a column and its slices), see {@link Block}.
+     */
+    public static Block allocateBlock(long byteCount) {
+        return new Block(allocate(byteCount));
+    }
+
+    /**
+     * Frees the memory of the given buffer (as returned by {@link #allocate(long)}, i.e. not a view thereof). The buffer
+     * (and all views thereof) must no longer be accessed afterwards.
+     */
+    public static void free(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            DEALLOCATOR.accept(buffer);
+        }
+    }
+
+    private static Consumer<ByteBuffer> createDeallocator() {
+        try {
+            // Java 9+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return buffer -> invoke(invokeCleaner, unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // fall through
+        }
+        try {
+            // Java 8
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> invoke(clean, invoke(cleaner, buffer));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // leave it to the garbage collector
+            return buffer -> {
+            };
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to free direct memory", e);
+        }
+    }
+
+    /**
+     * Direct memory shared by several views, which is freed once for all of them. Views must check {@link #isFreed()}
+     * before accessing the memory, so that they fail instead of reading freed memory (freeing must still not race with
+     * ongoing accesses).
+     */
+    public static final class Block {
+
+        private final ByteBuffer buffer;
+        private volatile boolean freed;
+
+        private Block(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        public boolean isFreed() {
+            return freed;
+        }
+
+        public synchronized void free() {
+            if (!freed) {
+                freed = true;
+                DirectMemory.free(buffer);
+            }
+        }
+
+    }
+
+}
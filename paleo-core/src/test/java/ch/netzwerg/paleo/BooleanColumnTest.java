@@ -20,6 +20,8 @@ import io.vavr.collection.Array;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class BooleanColumnTest extends AbstractBaseColumnTest<Boolean, BooleanColumn> {
 
@@ -40,4 +42,48 @@ public class BooleanColumnTest extends AbstractBaseColumnTest<Boolean, BooleanCo
         assertEquals(Array.of(true, false, false, true, false), column.valueStream().toArray());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void missingValues() {
+        BooleanColumn column = builder().add(true).add((Boolean) null).add(false).build();
+        assertEquals(3, column.getRowCount());
+        assertEquals(1, column.getNullCount());
+        assertTrue(column.isNull(1));
+        assertFalse(column.isNull(2));
+        assertEquals(Array.of(true, null, false), column.valueStream().toArray());
+    }
+
+    @Test
+    public void logicalOperations() {
+        BooleanColumn a = builder().addAll(true, true, false, false).addNull().build();
+        BooleanColumn b = builder().addAll(true, false, true, false, true).build();
+        assertEquals(Array.of(true, false, false, false, null), a.and(b).valueStream().toArray());
+        assertEquals(Array.of(true, true, true, false, null), a.or(b).valueStream().toArray());
+        assertEquals(Array.of(false, true, true, false, null), a.xor(b).valueStream().toArray());
+        assertEquals(Array.of(false, false, true, true, null), a.not().valueStream().toArray());
+        assertEquals(Array.of(false, true, false, true, false), b.not().valueStream().toArray());
+        assertEquals(2, a.cardinality());
+        assertEquals(0, a.not().and(a).cardinality());
+
+        // slices are realigned (including views which share trailing bits)
+        BooleanColumn slice = b.slice(1, 4);
+        assertEquals(Array.of(false, true, false), slice.valueStream().toArray());
+        assertEquals(Array.of(true, true, false), a.slice(0, 3).or(slice).valueStream().toArray());
+        assertEquals(Array.of(true, false, false), slice.xor(a.slice(0, 3)).valueStream().toArray());
+        assertEquals(1, slice.cardinality());
+    }
+
+    @Test
+    public void nextSetBit() {
+        BooleanColumn column = builder().addAll(false, true, false, true, true).build().slice(1, 4);
+        assertEquals(0, column.nextSetBit(0));
+        assertEquals(2, column.nextSetBit(1));
+        assertEquals(-1, column.nextSetBit(3));
+        assertEquals(-1, column.not().nextSetBit(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void logicalOperationOfDifferentRowCounts() {
+        builder().addAll(true, false).build().and(builder().add(true).build());
+    }
+
+}
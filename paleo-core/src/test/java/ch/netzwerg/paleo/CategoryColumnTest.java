@@ -19,13 +19,19 @@ package ch.netzwerg.paleo;
 import ch.netzwerg.chabis.WordGenerator;
 import io.vavr.collection.Array;
 import io.vavr.collection.HashSet;
+import io.vavr.collection.LinkedHashMap;
 import org.junit.Before;
+import io.vavr.control.Option;
 import org.junit.Test;
 
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static ch.netzwerg.paleo.ColumnIds.CategoryColumnId;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class CategoryColumnTest extends AbstractBaseColumnTest<String, CategoryColumn> {
 
@@ -62,4 +68,113 @@ public class CategoryColumnTest extends AbstractBaseColumnTest<String, CategoryC
         assertEquals(values, column.valueStream().toArray());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void codes() {
+        CategoryColumn column = builder().addAll("foo", "bar", "foo", "baz").build();
+        assertEquals(0, column.getCodeAt(0));
+        assertEquals(1, column.getCodeAt(1));
+        assertEquals(0, column.getCodeAt(2));
+        assertEquals(2, column.getCodeAt(3));
+    }
+
+    @Test
+    public void codesBeyondByteAndShortRange() {
+        for (int categoryCount : new int[]{256, 257, 65536, 65537}) {
+            CategoryColumn.Builder builder = builder();
+            for (int i = 0; i < categoryCount; i++) {
+                builder.add(String.valueOf(i));
+            }
+            CategoryColumn column = builder.add("0").build();
+            assertEquals(categoryCount + 1, column.getRowCount());
+            assertEquals(categoryCount - 1, column.getCodeAt(categoryCount - 1));
+            assertEquals(String.valueOf(categoryCount - 1), column.getValueAt(categoryCount - 1));
+            assertEquals(0, column.getCodeAt(categoryCount));
+            assertEquals("0", column.getValueAt(categoryCount));
+        }
+    }
+
+    @Test
+    public void countCodes() {
+        CategoryColumn.Builder builder = CategoryColumn.builder(ID);
+        for (int i = 0; i < 100_000; i++) {
+            builder.add("c" + (i % 7 == 0 ? 0 : 1 + i % 3));
+        }
+        CategoryColumn column = builder.build();
+        int[] counts = column.countCodes();
+        assertArrayEquals(new int[]{14286, 28571, 28571, 28572}, counts);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertArrayEquals(counts, column.countCodes(Parallelism.of(pool, 0)));
+            assertArrayEquals(new int[]{1, 2, 1, 3}, column.slice(99_990, 99_997).countCodes(Parallelism.of(pool, 0)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void categoryCounts() {
+        CategoryColumn column = CategoryColumn.ofAll(ID, "b", "a", "b", "c", "b");
+        assertEquals(LinkedHashMap.of("b", 3, "a", 1, "c", 1), column.getCategoryCounts());
+        assertEquals(4, column.countRows("b", "c"));
+        int[] counts = column.countCodes();
+        counts[0] = 0; // copies do not affect the stored counts
+        assertArrayEquals(new int[]{3, 1, 1}, column.countCodes());
+
+        CategoryColumn slice = column.slice(2, 4);
+        assertEquals(LinkedHashMap.of("b", 1, "c", 1), slice.getCategoryCounts());
+        assertEquals(HashSet.of("b", "c"), slice.getCategories());
+        assertEquals(0, slice.countRows("a"));
+        assertEquals(LinkedHashMap.of("c", 1, "a", 1), column.gather(new int[]{3, 1}).getCategoryCounts());
+    }
+
+    @Test
+    public void forEachCode() {
+        CategoryColumn column = CategoryColumn.ofAll(ID, "b", "a", "b", "c", "b").slice(1, 4);
+        StringBuilder codes = new StringBuilder();
+        column.forEachCode(code -> codes.append(code).append(column.getCategory(code)));
+        assertEquals("1a0b2c", codes.toString());
+    }
+
+    @Test
+    public void rowIndexes() {
+        // exercises all bitmap containers: runs ("a"), sparse rows ("b"), and dense rows ("c" and "d")
+        CategoryColumn.Builder builder = CategoryColumn.builder(ID);
+        for (int i = 0; i < 200_000; i++) {
+            builder.add(i < 70_000 ? "a" : i % 1000 == 0 ? "b" : i % 3 == 0 ? "c" : "d");
+        }
+        CategoryColumn column = builder.build();
+        for (String[] categories : new String[][]{{"a"}, {"b"}, {"c"}, {"b", "c"}, {"a", "d", "x"}, {"x"}, {}}) {
+            int[] expected = java.util.stream.IntStream.range(0, column.getRowCount())
+                    .filter(i -> Array.of(categories).contains(column.getValueAt(i))).toArray();
+            assertArrayEquals(expected, column.rowIndexes(categories));
+            assertEquals(expected.length, column.countRows(categories));
+        }
+        assertEquals(70_000, column.countRows("a", "a"));
+        assertArrayEquals(new int[]{0, 1}, column.slice(69_999, 70_003).rowIndexes("a", "b"));
+    }
+
+    @Test
+    public void gather() {
+        CategoryColumn column = CategoryColumn.ofAll(ID, "a", "b", "c", "a");
+        CategoryColumn gathered = column.gather(new int[]{3, 2, 2});
+        assertEquals(Array.of("a", "c", "c"), gathered.valueStream().toArray());
+        assertEquals(HashSet.of("a", "c"), gathered.getCategories());
+        assertEquals(Array.of("b", null), column.gather(new int[]{1, -1}).valueStream().toArray());
+    }
+
+
+    @Test
+    public void statistics() {
+        ColumnStatistics<String> statistics = CategoryColumn.ofAll(ID, "b", null, "a", "b", "c").getStatistics();
+        assertEquals(1, statistics.getNullCount());
+        assertEquals(Option.of("a"), statistics.getMin());
+        assertEquals(Option.of("c"), statistics.getMax());
+        assertEquals(3, statistics.getDistinctCount());
+        assertTrue(statistics.isDistinctCountExact());
+        assertFalse(statistics.isSorted());
+        assertTrue(CategoryColumn.ofAll(ID, "a", "a", "b", "c", "c").getStatistics().isSorted());
+        assertEquals(Option.of("b"), CategoryColumn.ofAll(ID, "a", "b", "c").slice(1, 2).getStatistics().getMax());
+    }
+
+}
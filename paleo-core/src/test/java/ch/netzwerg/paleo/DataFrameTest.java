@@ -21,6 +21,7 @@ import org.junit.Test;
 import java.io.File;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Random;
 
 import static ch.netzwerg.paleo.ColumnIds.*;
 import static org.junit.Assert.*;
@@ -146,6 +147,412 @@ public class DataFrameTest {
         assertEquals(fileB, fileValue);
     }
 
+    @Test
+    public void columnLookup() {
+        StringColumn nameColumn = StringColumn.ofAll(NAME, "Ada", "Homer");
+        IntColumn ageColumn = IntColumn.ofAll(AGE, 42, 99);
+        LongColumn idColumn = LongColumn.ofAll(LongColumnId.of("Id"), 1L, 2L);
+        DataFrame df = DataFrame.ofAll(nameColumn, ageColumn, idColumn);
+
+        // lookup via equal (but not identical) ids
+        assertEquals(1, df.getColumnIndex(IntColumnId.of("Age")));
+        assertEquals(ageColumn, df.getColumn(IntColumnId.of("Age")));
+        assertEquals(2L, df.getValueAt(1, LongColumnId.of("Id")));
+        assertEquals(2, df.getColumnIndex("Id"));
+
+        // index-based typed access
+        assertEquals(nameColumn, df.getStringColumn(0));
+        assertEquals(ageColumn, df.getIntColumn(1));
+        assertEquals(idColumn, df.getLongColumn(2));
+        assertEquals(idColumn, df.getColumn(2));
+
+        try {
+            df.getDoubleColumn(1);
+            fail("Type mismatch expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Column 1 is a IntColumn (not a DoubleColumn)", e.getMessage());
+        }
+        try {
+            df.getColumn(DoubleColumnId.of("Age"));
+            fail("Unknown id expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown column id 'Age (Double)'", e.getMessage());
+        }
+    }
+
+    @Test
+    public void columnIdValueSemantics() {
+        assertEquals(IntColumnId.of("Age"), IntColumnId.of("Age"));
+        assertEquals(IntColumnId.of("Age").hashCode(), IntColumnId.of("Age").hashCode());
+        assertNotEquals(IntColumnId.of("Age"), LongColumnId.of("Age"));
+        assertNotEquals(IntColumnId.of("Age"), IntColumnId.of("Height"));
+        ColumnType<GenericColumnId> fileType = new ColumnType<>("File", GenericColumnId.class);
+        assertEquals(GenericColumnId.of("File", fileType), GenericColumnId.of("File", new ColumnType<>("File", GenericColumnId.class)));
+    }
+
+    @Test
+    public void slice() {
+        DataFrame df = DataFrame.ofAll(
+                StringColumn.ofAll(NAME, "Ada", "Homer", "Hillary", "Bart"),
+                IntColumn.builder(AGE).add(42).addNull().add(67).add(10).build(),
+                DoubleColumn.ofAll(HEIGHT, 1.74, 1.20, 1.70, 1.10),
+                BooleanColumn.builder(VEGETARIAN).add(true).add(false).addNull().add(true).build(),
+                TimestampColumn.ofAll(DATE_OF_BIRTH, AUG_26_1975, JAN_08_2006, OCT_26_1947, AUG_26_1975),
+                CategoryColumn.ofAll(GENDER, "Female", "Male", "Female", "Male"));
+
+        DataFrame slice = df.slice(1, 3);
+        assertEquals(2, slice.getRowCount());
+        assertEquals(6, slice.getColumnCount());
+        assertEquals(df.getColumnIds(), slice.getColumnIds());
+        assertEquals(Array.of("Homer", "Hillary"), slice.getColumn(NAME).getValues());
+        assertTrue(slice.getColumn(AGE).isNull(0));
+        assertEquals(1, slice.getColumn(AGE).getNullCount());
+        assertEquals(67, slice.getValueAt(1, AGE));
+        assertArrayEquals(new double[]{1.20, 1.70}, slice.getColumn(HEIGHT).valueStream().toArray(), 0.01);
+        assertEquals(Array.of(false, null), slice.getColumn(VEGETARIAN).valueStream().toArray());
+        assertEquals(Array.of(JAN_08_2006, OCT_26_1947), slice.getColumn(DATE_OF_BIRTH).getValues());
+        assertEquals(Array.of("Male", "Female"), slice.getColumn(GENDER).valueStream().toArray());
+
+        // slices of slices
+        DataFrame nested = slice.slice(1, 2);
+        assertEquals(1, nested.getRowCount());
+        assertEquals("Hillary", nested.getValueAt(0, NAME));
+        assertEquals(HashSet.of("Female"), nested.getColumn(GENDER).getCategories());
+        assertEquals(1, nested.getColumn(VEGETARIAN).getNullCount());
+
+        assertEquals(0, df.slice(4, 4).getRowCount());
+        try {
+            slice.getValueAt(2, NAME);
+            fail("Access beyond slice expected to fail");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void filter() {
+        DataFrame df = DataFrame.ofAll(
+                StringColumn.ofAll(NAME, "Ada", "Homer", "Hillary", "Bart", "Lisa"),
+                IntColumn.builder(AGE).add(42).addNull().add(67).add(10).add(8).build(),
+                CategoryColumn.ofAll(GENDER, "Female", "Male", "Female", "Male", "Female"));
+
+        DataFrame females = df.filter(row -> df.getValueAt(row, GENDER).equals("Female"));
+        assertTrue(females.isView());
+        assertEquals(3, females.getRowCount());
+        assertEquals("Hillary", females.getValueAt(1, NAME));
+        assertEquals(8, females.getValueAt(2, AGE));
+
+        // chained filters compose selections of the original columns
+        DataFrame adultFemales = females.filter(row -> females.getValueAt(row, AGE) >= 18);
+        assertEquals(2, adultFemales.getRowCount());
+        assertEquals(Array.of("Ada", "Hillary"), adultFemales.getColumn(NAME).getValues());
+        assertArrayEquals(new int[]{42, 67}, adultFemales.getColumn(AGE).valueStream().toArray());
+        assertEquals(HashSet.of("Female"), adultFemales.getColumn(GENDER).getCategories());
+        assertEquals("Hillary", adultFemales.slice(1, 2).getValueAt(0, NAME));
+
+        DataFrame unknownAge = df.filter(row -> df.getColumn(AGE).isNull(row)).compact();
+        assertFalse(unknownAge.isView());
+        assertEquals(1, unknownAge.getRowCount());
+        assertEquals("Homer", unknownAge.getValueAt(0, NAME));
+        assertEquals(1, unknownAge.getColumn(AGE).getNullCount());
+
+        DataFrame none = df.filter(row -> false);
+        assertEquals(0, none.getRowCount());
+        assertEquals(3, none.getColumnCount());
+        assertEquals(0, none.compact().getColumn(NAME).getRowCount());
+    }
+
+    @Test
+    public void filterByMask() {
+        DataFrame df = DataFrame.ofAll(
+                StringColumn.ofAll(NAME, "Ada", "Homer", "Hillary", "Bart", "Lisa"),
+                IntColumn.ofAll(AGE, 42, 39, 67, 10, 8));
+        BooleanColumnId adultId = BooleanColumnId.of("Adult");
+        BooleanColumn adult = BooleanColumn.builder(adultId).addAll(true, true, true, false).addNull().build();
+        BooleanColumn even = BooleanColumn.ofAll(adultId, true, false, false, true, true);
+
+        assertEquals(Array.of("Ada", "Homer", "Hillary"), df.filter(adult).getColumn(NAME).getValues());
+        assertEquals(Array.of("Ada", "Bart"), df.filter(adult.and(even).or(adult.not())).getColumn(NAME).getValues());
+
+        DataFrame sorted = df.sortBy(AGE, SortOrder.ASCENDING);
+        assertArrayEquals(new int[]{10, 42}, sorted.filter(even.xor(BooleanColumn.ofAll(adultId, true, true, false, false, true))).getColumn(AGE).valueStream().toArray());
+    }
+
+    @Test
+    public void customColumnWithoutSlicing() {
+        Column<StringColumnId> custom = new Column<StringColumnId>() {
+            @Override
+            public StringColumnId getId() {
+                return StringColumnId.of("custom");
+            }
+
+            @Override
+            public int getRowCount() {
+                return 2;
+            }
+
+            @Override
+            public Map<String, String> getMetaData() {
+                return LinkedHashMap.empty();
+            }
+        };
+        DataFrame df = DataFrame.ofAll(custom);
+        assertEquals(2, df.getRowCount());
+        try {
+            df.slice(0, 1);
+            fail("Exception expected");
+        } catch (UnsupportedOperationException e) {
+            assertEquals("Column 'custom' does not support slice", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void filterByMaskOfDifferentRowCount() {
+        DataFrame df = DataFrame.of(IntColumn.ofAll(AGE, 1, 2, 3));
+        df.filter(BooleanColumn.ofAll(BooleanColumnId.of("Mask"), true, false));
+    }
+
+    @Test
+    public void filterByCategory() {
+        DataFrame df = DataFrame.ofAll(
+                StringColumn.ofAll(NAME, "Ada", "Homer", "Hillary", "Bart", "Lisa"),
+                CategoryColumn.ofAll(GENDER, "Female", "Male", "Female", "Male", "Other"));
+
+        DataFrame females = df.filter(GENDER, "Female");
+        assertTrue(females.isView());
+        assertEquals(Array.of("Ada", "Hillary"), females.getColumn(NAME).getValues());
+        assertEquals(Array.of("Homer", "Bart", "Lisa"), df.filter(GENDER, "Male", "Other").getColumn(NAME).getValues());
+        assertEquals(0, df.filter(GENDER, "Unknown").getRowCount());
+
+        // views keep their row order
+        DataFrame sorted = df.sortBy(NAME, SortOrder.DESCENDING);
+        DataFrame femalesOrOthers = sorted.filter(GENDER, "Female", "Other");
+        assertEquals(Array.of("Lisa", "Hillary", "Ada"), femalesOrOthers.getColumn(NAME).getValues());
+        assertEquals(Array.of("Hillary", "Ada"), femalesOrOthers.filter(GENDER, "Female").getColumn(NAME).getValues());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void filterOutOfBounds() {
+        DataFrame df = DataFrame.of(IntColumn.ofAll(AGE, 1, 2, 3));
+        df.filter(row -> df.getValueAt(row, AGE) > 1).getValueAt(2, AGE);
+    }
+
+    @Test
+    public void groupByCategory() {
+        DataFrame df = DataFrame.ofAll(
+                CategoryColumn.ofAll(GENDER, "Female", "Male", "Other", "Female", "Male", "Female"),
+                IntColumn.builder(AGE).add(42).addNull().add(30).add(67).add(10).add(8).build(),
+                DoubleColumn.builder(HEIGHT).add(1.74).add(1.80).addNull().add(1.70).add(1.10).add(1.20).build());
+
+        DataFrame grouped = df.groupBy(GENDER,
+                Aggregation.count(),
+                Aggregation.sum(AGE),
+                Aggregation.count(AGE).as("Known Ages"),
+                Aggregation.min(AGE),
+                Aggregation.max(HEIGHT),
+                Aggregation.mean(HEIGHT));
+        assertEquals(3, grouped.getRowCount());
+        assertEquals(Array.of("Gender", "count", "sum(Age)", "Known Ages", "min(Age)", "max(Height)", "mean(Height)"), grouped.getColumnNames());
+        assertEquals(Array.of("Female", "Male", "Other"), grouped.getCategoryColumn(0).valueStream().toArray());
+        assertArrayEquals(new int[]{3, 2, 1}, grouped.getIntColumn(1).valueStream().toArray());
+        assertArrayEquals(new long[]{117, 10, 30}, grouped.getLongColumn(2).valueStream().toArray());
+        assertArrayEquals(new int[]{3, 1, 1}, grouped.getIntColumn(3).valueStream().toArray());
+        assertArrayEquals(new int[]{8, 10, 30}, grouped.getIntColumn(4).valueStream().toArray());
+        DoubleColumn maxHeights = grouped.getDoubleColumn(5);
+        assertEquals(1.74, maxHeights.getValueAt(0), 0);
+        assertEquals(1.80, maxHeights.getValueAt(1), 0);
+        assertTrue(maxHeights.isNull(2));
+        assertEquals(1.45, grouped.getDoubleColumn(6).getValueAt(1), 1e-9);
+
+        // categories without rows are omitted
+        DataFrame adults = df.filter(row -> df.getValueAt(row, AGE) >= 18);
+        DataFrame groupedAdults = adults.groupBy(GENDER, Aggregation.count());
+        assertEquals(Array.of("Female", "Other"), groupedAdults.getColumn(GENDER).valueStream().toArray());
+        assertArrayEquals(new int[]{2, 1}, groupedAdults.getIntColumn(1).valueStream().toArray());
+    }
+
+    @Test
+    public void groupByMultipleKeys() {
+        DataFrame df = DataFrame.ofAll(
+                StringColumn.ofAll(NAME, "Ada", null, "Bart", "Ada", null, "Bart"),
+                BooleanColumn.builder(VEGETARIAN).add(true).add(false).add(true).add(true).add(false).addNull().build(),
+                IntColumn.builder(AGE).add(42).add(1).add(10).add(8).addNull().add(11).build());
+
+        DataFrame grouped = df.groupBy(Array.of(NAME, VEGETARIAN), Aggregation.count(), Aggregation.sum(AGE), Aggregation.max(AGE));
+        assertEquals(4, grouped.getRowCount());
+        assertEquals(Array.of("Name", "Vegetarian", "count", "sum(Age)", "max(Age)"), grouped.getColumnNames());
+        assertEquals(Array.of("Ada", null, "Bart", "Bart"), grouped.getColumn(NAME).getValues());
+        assertEquals(Array.of(true, false, true, null), grouped.getColumn(VEGETARIAN).valueStream().toArray());
+        assertArrayEquals(new int[]{2, 2, 1, 1}, grouped.getIntColumn(2).valueStream().toArray());
+        assertArrayEquals(new long[]{50, 1, 10, 11}, grouped.getLongColumn(3).valueStream().toArray());
+        assertArrayEquals(new int[]{42, 1, 10, 11}, grouped.getIntColumn(4).valueStream().toArray());
+    }
+
+    @Test
+    public void groupByManyGroups() {
+        LongColumnId id = LongColumnId.of("Id");
+        int rowCount = 10_000;
+        CategoryColumn.Builder genders = CategoryColumn.builder(GENDER);
+        LongColumn.Builder ids = LongColumn.builder(id);
+        DoubleColumn.Builder heights = DoubleColumn.builder(HEIGHT);
+        for (int i = 0; i < rowCount; i++) {
+            genders.add(i % 2 == 0 ? "Female" : "Male");
+            ids.add((long) (i % 500) << 40);
+            heights.add(i);
+        }
+        DataFrame df = DataFrame.ofAll(genders.build(), ids.build(), heights.build());
+
+        DataFrame grouped = df.groupBy(Array.of(GENDER, id), Aggregation.count(), Aggregation.mean(HEIGHT), Aggregation.min(HEIGHT));
+        assertEquals(500, grouped.getRowCount());
+        for (int group = 0; group < 500; group++) {
+            assertEquals(group % 2 == 0 ? "Female" : "Male", grouped.getValueAt(group, GENDER));
+            assertEquals((long) group << 40, grouped.getValueAt(group, id));
+            assertEquals(20, grouped.getIntColumn(2).getValueAt(group));
+            assertEquals(group + 4750, grouped.getDoubleColumn(3).getValueAt(group), 1e-9);
+            assertEquals(group, grouped.getDoubleColumn(4).getValueAt(group), 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void groupByUnsupportedKey() {
+        DataFrame.of(TimestampColumn.of(DATE_OF_BIRTH, AUG_26_1975)).groupBy(Array.of(DATE_OF_BIRTH), Aggregation.count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void groupByWithNonNumericAggregation() {
+        DataFrame.ofAll(CategoryColumn.of(GENDER, "Female"), StringColumn.of(NAME, "Ada")).groupBy(GENDER, Aggregation.sum(NAME));
+    }
+
+    @Test
+    public void join() {
+        IntColumnId personId = IntColumnId.of("Person");
+        IntColumnId ownerId = IntColumnId.of("Owner");
+        StringColumnId pet = StringColumnId.of("Pet");
+        DataFrame persons = DataFrame.ofAll(
+                IntColumn.builder(personId).add(1).add(2).add(3).addNull().build(),
+                StringColumn.ofAll(NAME, "Ada", "Homer", "Bart", "Nobody"));
+        DataFrame pets = DataFrame.ofAll(
+                IntColumn.builder(ownerId).add(3).add(1).add(3).add(5).addNull().build(),
+                StringColumn.ofAll(pet, "Santa's Little Helper", "Babbage", "Snowball", "Scratchy", "Stray"));
+
+        // the hash table is built over the (smaller) persons, the result follows the order of the probed pets
+        DataFrame inner = persons.join(pets, personId, ownerId, JoinType.INNER);
+        assertEquals(Array.of("Person", "Name", "Pet"), inner.getColumnNames());
+        assertEquals(3, inner.getRowCount());
+        assertEquals(Array.of("Bart", "Ada", "Bart"), inner.getColumn(NAME).getValues());
+        assertEquals(Array.of("Santa's Little Helper", "Babbage", "Snowball"), inner.getColumn(pet).getValues());
+
+        DataFrame swapped = pets.join(persons, ownerId, personId, JoinType.INNER);
+        assertEquals(Array.of("Owner", "Pet", "Name"), swapped.getColumnNames());
+        assertEquals(Array.of("Bart", "Ada", "Bart"), swapped.getColumn(NAME).getValues());
+
+        DataFrame left = persons.join(pets, personId, ownerId, JoinType.LEFT);
+        assertEquals(5, left.getRowCount());
+        assertEquals(Array.of("Ada", "Homer", "Bart", "Bart", "Nobody"), left.getColumn(NAME).getValues());
+        assertEquals(Array.of("Babbage", null, "Santa's Little Helper", "Snowball", null), left.getColumn(pet).getValues());
+        assertTrue(left.getColumn(personId).isNull(4));
+    }
+
+    @Test
+    public void joinOnStringsAndCategories() {
+        CategoryColumnId color = CategoryColumnId.of("Color");
+        StringColumnId hex = StringColumnId.of("Hex");
+        DataFrame things = DataFrame.ofAll(
+                StringColumn.ofAll(NAME, "Sky", "Grass", "Rose", "Snow"),
+                CategoryColumn.ofAll(color, "blue", "green", "red", "white"));
+        DataFrame colors = DataFrame.ofAll(
+                CategoryColumn.ofAll(color, "red", "blue", "green"),
+                StringColumn.ofAll(hex, "#f00", "#00f", "#0f0"));
+
+        DataFrame joined = things.join(colors, color, color, JoinType.LEFT);
+        assertEquals(Array.of("#00f", "#0f0", "#f00", null), joined.getColumn(hex).getValues());
+
+        DataFrame byName = things.join(DataFrame.of(StringColumn.ofAll(hex, "Rose", "Sky", "Rosé")), NAME, hex, JoinType.INNER);
+        assertEquals(Array.of("Sky", "Rose"), byName.getColumn(NAME).getValues());
+    }
+
+    @Test
+    public void joinOnMissingCategories() {
+        CategoryColumnId color = CategoryColumnId.of("Color");
+        StringColumnId hex = StringColumnId.of("Hex");
+        DataFrame things = DataFrame.ofAll(StringColumn.ofAll(NAME, "Sky", "Void"), CategoryColumn.ofAll(color, "blue", null));
+        DataFrame colors = DataFrame.ofAll(CategoryColumn.ofAll(color, null, "blue"), StringColumn.ofAll(hex, "#000", "#00f"));
+
+        DataFrame inner = things.join(colors, color, color, JoinType.INNER);
+        assertEquals(Array.of("Sky"), inner.getColumn(NAME).getValues());
+        assertEquals(Array.of("#00f"), inner.getColumn(hex).getValues());
+
+        DataFrame left = things.join(colors, color, color, JoinType.LEFT);
+        assertEquals(Array.of("#00f", null), left.getColumn(hex).getValues());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void joinOnDifferentKeyTypes() {
+        DataFrame.of(IntColumn.ofAll(AGE, 1)).join(DataFrame.of(LongColumn.ofAll(LongColumnId.of("Id"), 1L)), AGE, LongColumnId.of("Id"), JoinType.INNER);
+    }
+
+    @Test
+    public void sortBy() {
+        DataFrame df = DataFrame.ofAll(
+                StringColumn.ofAll(NAME, "Homer", "Ada", "Bart", "Lisa", "Maggie", "Ämma"),
+                IntColumn.builder(AGE).add(36).add(42).addNull().add(8).add(1).add(-3).build(),
+                DoubleColumn.ofAll(HEIGHT, 1.80, -0.5, 1.10, 1.20, 0.0, -0.0),
+                TimestampColumn.ofAll(DATE_OF_BIRTH, AUG_26_1975, AUG_26_1975.plusNanos(1), OCT_26_1947, JAN_08_2006, null, AUG_26_1975),
+                CategoryColumn.ofAll(GENDER, "Male", "Female", "Male", "Female", "Female", "Female"));
+
+        assertEquals(Array.of("Ämma", "Maggie", "Lisa", "Homer", "Ada", "Bart"), df.sortBy(AGE, SortOrder.ASCENDING).getColumn(NAME).getValues());
+        assertEquals(Array.of("Ada", "Homer", "Lisa", "Maggie", "Ämma", "Bart"), df.sortBy(AGE, SortOrder.DESCENDING).getColumn(NAME).getValues());
+        assertEquals(Array.of("Ada", "Bart", "Homer", "Lisa", "Maggie", "Ämma"), df.sortBy(NAME, SortOrder.ASCENDING).getColumn(NAME).getValues());
+        assertEquals(Array.of("Ada", "Ämma", "Maggie", "Bart", "Lisa", "Homer"), df.sortBy(HEIGHT, SortOrder.ASCENDING).getColumn(NAME).getValues());
+        assertEquals(Array.of("Bart", "Homer", "Ämma", "Ada", "Lisa", "Maggie"), df.sortBy(DATE_OF_BIRTH, SortOrder.ASCENDING).getColumn(NAME).getValues());
+
+        DataFrame sorted = df.sortBy(Array.of(GENDER, DATE_OF_BIRTH), SortOrder.DESCENDING);
+        assertTrue(sorted.isView());
+        assertEquals(Array.of("Homer", "Bart", "Lisa", "Ada", "Ämma", "Maggie"), sorted.getColumn(NAME).getValues());
+
+        // sorting a view composes the permutation with the selection
+        DataFrame adults = df.filter(row -> df.getValueAt(row, AGE) >= 18).sortBy(AGE, SortOrder.ASCENDING);
+        assertEquals(Array.of("Homer", "Ada"), adults.getColumn(NAME).getValues());
+    }
+
+    @Test
+    public void sortByCategoriesInStringOrder() {
+        StringColumnId smileyId = StringColumnId.of("Smiley");
+        // U+1F600 (a surrogate pair in UTF-16) sorts after U+FB01 by code point, but before it by UTF-16 code unit
+        DataFrame df = DataFrame.ofAll(
+                StringColumn.ofAll(NAME, "\uD83D\uDE00", "\uFB01", "a"),
+                CategoryColumn.ofAll(GENDER, "\uD83D\uDE00", "\uFB01", "a"),
+                StringColumn.ofAll(smileyId, "smiley", "ligature", "letter"));
+
+        Array<String> expected = Array.of("letter", "ligature", "smiley");
+        assertEquals(expected, df.sortBy(NAME, SortOrder.ASCENDING).getColumn(smileyId).getValues());
+        assertEquals(expected, df.sortBy(GENDER, SortOrder.ASCENDING).getColumn(smileyId).getValues());
+    }
+
+    @Test
+    public void radixSortMatchesComparisonSort() {
+        LongColumnId id = LongColumnId.of("Id");
+        long[] values = new Random(42).longs(50_000).map(v -> v >> (v & 63)).toArray();
+        DataFrame df = DataFrame.of(LongColumn.ofAll(id, values));
+        long[] sorted = df.sortBy(id, SortOrder.ASCENDING).getColumn(id).valueStream().toArray();
+        Arrays.sort(values);
+        assertArrayEquals(values, sorted);
+    }
+
+    @Test
+    public void sliceByTime() {
+        DataFrame df = DataFrame.ofAll(
+                TimestampColumn.ofAll(DATE_OF_BIRTH, OCT_26_1947, AUG_26_1975, JAN_08_2006),
+                StringColumn.ofAll(NAME, "Homer", "Ada", "Bart"));
+        DataFrame seventiesAndLater = df.slice(DATE_OF_BIRTH, Instant.parse("1970-01-01T00:00:00Z"), Instant.MAX);
+        assertEquals(Array.of("Ada", "Bart"), seventiesAndLater.getColumn(NAME).getValues());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void sliceOutOfBounds() {
+        DataFrame.of(IntColumn.ofAll(AGE, 1, 2, 3)).slice(2, 4);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void failOnDifferingColumnSizes() {
         StringColumn oneRowColumn = StringColumn.builder(NAME).add("foo").build();
@@ -16,13 +16,18 @@
 
 package ch.netzwerg.paleo;
 
+import io.vavr.control.Option;
 import org.junit.Test;
 
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.DoubleStream;
 
 import static ch.netzwerg.paleo.ColumnIds.DoubleColumnId;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class DoubleColumnTest extends AbstractBaseColumnTest<Double, DoubleColumn> {
 
@@ -62,6 +67,13 @@ public class DoubleColumnTest extends AbstractBaseColumnTest<Double, DoubleColum
         assertMultipleValues(column);
     }
 
+    @Test
+    public void builderWithExpectedSize() {
+        DoubleColumn.Builder builder = DoubleColumn.builder(ID, 0).add(1d).addAll(2, 9, 0);
+        assertMultipleValues(builder.build());
+        assertEquals(5, builder.add(3d).build().getRowCount());
+    }
+
     private static void assertMultipleValues(DoubleColumn column) {
         assertEquals(ID, column.getId());
         assertEquals(4, column.getRowCount());
@@ -70,4 +82,108 @@ public class DoubleColumnTest extends AbstractBaseColumnTest<Double, DoubleColum
         assertArrayEquals(new double[]{1, 2, 9, 0}, column.valueStream().toArray(), DELTA);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void missingValues() {
+        DoubleColumn column = builder().add(1d).addNull().add(3d).build();
+        assertEquals(1, column.getNullCount());
+        assertTrue(column.isNull(1));
+        assertTrue(Double.isNaN(column.getValueAt(1)));
+        assertEquals(2d, column.nonNullValueStream().average().getAsDouble(), DELTA);
+    }
+
+    @Test
+    public void offHeapStorage() {
+        DoubleColumn column = builder().storage(Storage.OFF_HEAP).add(1d).addAll(2, 9, 0).build();
+        assertEquals(Storage.OFF_HEAP, column.getStorage());
+        assertMultipleValues(column);
+        column.release();
+    }
+
+    @Test
+    public void aggregations() {
+        for (Storage storage : Storage.values()) {
+            DoubleColumn column = builder().storage(storage).addAll(1.5, 2.5).addNull().addAll(-3, 8).build();
+            assertEquals(9, column.sum(), DELTA);
+            assertEquals(4, column.count());
+            assertEquals(-3, column.min().getAsDouble(), DELTA);
+            assertEquals(8, column.max().getAsDouble(), DELTA);
+            assertEquals(2.25, column.mean().getAsDouble(), DELTA);
+            assertEquals(20.41666, column.variance().getAsDouble(), DELTA);
+            assertEquals(4, column.sum(0, 3), DELTA);
+            assertEquals(17.5, column.sum(new int[]{4, 2, 4, 0, 2}), DELTA);
+            assertFalse(column.max(new int[]{2}).isPresent());
+            column.release();
+        }
+    }
+
+    @Test
+    public void compensatedSummation() {
+        DoubleColumn.Builder builder = builder().add(1e16);
+        for (int i = 0; i < 10_000; i++) {
+            builder.add(1d);
+        }
+        DoubleColumn column = builder.add(-1e16).build();
+        assertEquals(10_000, column.sum(), 0);
+        assertEquals(Double.POSITIVE_INFINITY, builder.add(Double.POSITIVE_INFINITY).build().sum(), 0);
+    }
+
+    @Test
+    public void parallelAggregations() {
+        Random random = new Random(42);
+        DoubleColumn.Builder builder = builder();
+        for (int i = 0; i < 200_000; i++) {
+            if (i % 100 == 0) {
+                builder.addNull();
+            } else {
+                builder.add(random.nextGaussian() * 1e6);
+            }
+        }
+        DoubleColumn column = builder.build();
+
+        ForkJoinPool singleThreadPool = new ForkJoinPool(1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Parallelism parallelism = Parallelism.of(pool, 0);
+            assertEquals(column.sum(), column.sum(parallelism), 1e-3);
+            assertEquals(column.min().getAsDouble(), column.min(parallelism).getAsDouble(), 0);
+            assertEquals(column.max().getAsDouble(), column.max(parallelism).getAsDouble(), 0);
+            assertEquals(column.mean().getAsDouble(), column.mean(parallelism).getAsDouble(), 1e-6);
+            double variance = column.variance().getAsDouble();
+            assertEquals(variance, column.variance(parallelism).getAsDouble(), variance * 1e-12);
+            assertEquals(198_000, column.count(parallelism));
+
+            // partial results are combined in a fixed order, regardless of the number of threads
+            Parallelism singleThreaded = Parallelism.of(singleThreadPool, 0);
+            assertEquals(column.sum(singleThreaded), column.sum(parallelism), 0);
+            assertEquals(column.variance(singleThreaded).getAsDouble(), column.variance(parallelism).getAsDouble(), 0);
+
+            // below the threshold, everything stays on the calling thread
+            assertEquals(column.sum(), column.sum(Parallelism.of(pool, Integer.MAX_VALUE)), 0);
+        } finally {
+            singleThreadPool.shutdown();
+            pool.shutdown();
+        }
+    }
+
+
+    @Test
+    public void statistics() {
+        DoubleColumn column = DoubleColumn.builder(ID).add(1.5).add(Double.NaN).addNull().add(-0.0).add(0.0).build();
+        ColumnStatistics<Double> statistics = column.getStatistics();
+        assertEquals(1, statistics.getNullCount());
+        assertEquals(Option.of(-0.0), statistics.getMin()); // NaN is ignored
+        assertEquals(Option.of(1.5), statistics.getMax());
+        assertFalse(statistics.isSorted());
+        assertEquals(3, statistics.getDistinctCount()); // -0.0 and 0.0 are counted once
+
+        assertEquals(2, column.isBetween(0.0, 1.0).cardinality());
+        assertEquals(3, column.isBetween(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY).cardinality());
+        assertTrue(DoubleColumn.ofAll(ID, 1, 2, 2, 3).getStatistics().isSorted());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void isBetweenNaN() {
+        DoubleColumn.ofAll(ID, 1, 2).isBetween(Double.NaN, 2);
+    }
+
+}
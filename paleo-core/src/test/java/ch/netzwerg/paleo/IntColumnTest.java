@@ -16,11 +16,18 @@
 
 package ch.netzwerg.paleo;
 
+import io.vavr.control.Option;
 import org.junit.Test;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
 import static ch.netzwerg.paleo.ColumnIds.IntColumnId;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class IntColumnTest extends AbstractBaseColumnTest<Integer, IntColumn> {
 
@@ -41,4 +48,193 @@ public class IntColumnTest extends AbstractBaseColumnTest<Integer, IntColumn> {
         assertArrayEquals(new int[]{42, 33, 69, 99}, column.valueStream().toArray());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void builderWithExpectedSize() {
+        IntColumn.Builder builder = IntColumn.builder(ID, 2).add(1).add(2).add(3);
+        IntColumn column = builder.build();
+        assertArrayEquals(new int[]{1, 2, 3}, column.valueStream().toArray());
+
+        // continuing to add must not affect the previously built column
+        IntColumn extended = builder.add(4).build();
+        assertArrayEquals(new int[]{1, 2, 3}, column.valueStream().toArray());
+        assertArrayEquals(new int[]{1, 2, 3, 4}, extended.valueStream().toArray());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void valueBeyondRowCount() {
+        IntColumn.builder(ID, 10).add(1).build().getValueAt(1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void nullBeyondSliceRowCount() {
+        builder().add(1).addNull().add(3).build().slice(0, 1).isNull(1);
+    }
+
+    @Test
+    public void missingValues() {
+        IntColumn column = builder().add(1).addNull().add((Integer) null).add(4).build();
+        assertEquals(4, column.getRowCount());
+        assertEquals(2, column.getNullCount());
+        assertFalse(column.isNull(0));
+        assertTrue(column.isNull(1));
+        assertTrue(column.isNull(2));
+        assertEquals(0, column.getValueAt(1));
+        assertArrayEquals(new int[]{1, 4}, column.nonNullValueStream().toArray());
+        assertEquals(0, builder().add(1).build().getNullCount());
+    }
+
+    @Test
+    public void offHeapStorage() {
+        IntColumn column = builder().storage(Storage.OFF_HEAP).add(42).addNull().addAll(33, 69).build();
+        assertEquals(Storage.OFF_HEAP, column.getStorage());
+        assertEquals(4, column.getRowCount());
+        assertEquals(42, column.getValueAt(0));
+        assertTrue(column.isNull(1));
+        assertArrayEquals(new int[]{42, 0, 33, 69}, column.valueStream().toArray());
+        assertArrayEquals(new int[]{42, 33, 69}, column.nonNullValueStream().toArray());
+
+        column.release();
+        assertEquals(4, column.getRowCount());
+        try {
+            column.getValueAt(0);
+            fail("Released column must not be accessible");
+        } catch (IllegalStateException e) {
+            assertEquals("Column 'test' has been released", e.getMessage());
+        }
+    }
+
+    @Test
+    public void releaseOffHeapSlice() {
+        IntColumn column = builder().storage(Storage.OFF_HEAP).addAll(1, 2, 3).build();
+        IntColumn slice = column.slice(1, 3);
+        slice.release(); // views do not own the memory
+        assertEquals(1, column.getValueAt(0));
+        assertEquals(2, slice.getValueAt(0));
+
+        column.release();
+        try {
+            slice.slice(0, 1).sum();
+            fail("Views of a released column must not be accessible");
+        } catch (IllegalStateException e) {
+            assertEquals("Column 'test' has been released", e.getMessage());
+        }
+    }
+
+    @Test
+    public void releaseHeapStorage() {
+        IntColumn column = builder().add(42).build();
+        assertEquals(Storage.HEAP, column.getStorage());
+        column.release();
+        assertEquals(42, column.getValueAt(0));
+    }
+
+    @Test
+    public void slice() {
+        for (Storage storage : Storage.values()) {
+            IntColumn column = builder().storage(storage).addAll(1, 2, 3, 4, 5).build();
+            IntColumn slice = column.slice(1, 4);
+            assertEquals(3, slice.getRowCount());
+            assertEquals(2, slice.getValueAt(0));
+            assertArrayEquals(new int[]{2, 3, 4}, slice.valueStream().toArray());
+            assertArrayEquals(new int[]{3}, slice.slice(1, 2).valueStream().toArray());
+            column.release();
+        }
+    }
+
+    @Test
+    public void aggregations() {
+        for (Storage storage : Storage.values()) {
+            IntColumn column = builder().storage(storage).addAll(4, 2).addNull().addAll(Integer.MAX_VALUE, Integer.MAX_VALUE, 9).build();
+            assertEquals(2L * Integer.MAX_VALUE + 15, column.sum());
+            assertEquals(5, column.count());
+            assertEquals(2, column.min().getAsInt());
+            assertEquals(Integer.MAX_VALUE, column.max().getAsInt());
+
+            assertEquals(6, column.sum(0, 3));
+            assertEquals(2, column.count(0, 3));
+            assertEquals(3, column.mean(0, 3).getAsDouble(), 0);
+            assertEquals(2, column.variance(0, 3).getAsDouble(), 0);
+            assertFalse(column.min(2, 3).isPresent());
+            assertFalse(column.variance(1, 3).isPresent());
+
+            int[] selection = {5, 2, 0, 5};
+            assertEquals(22, column.sum(selection));
+            assertEquals(3, column.count(selection));
+            assertEquals(4, column.min(selection).getAsInt());
+            assertEquals(9, column.max(selection).getAsInt());
+            assertEquals(22 / 3d, column.mean(selection).getAsDouble(), 1e-9);
+            assertEquals(8.333333333, column.variance(selection).getAsDouble(), 1e-9);
+
+            // views aggregate their own rows only
+            assertEquals(Integer.MAX_VALUE + 9L, column.slice(4, 6).sum());
+            column.release();
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void aggregationOfInvalidRow() {
+        builder().addAll(1, 2, 3).build().slice(0, 2).sum(new int[]{0, 2});
+    }
+
+    @Test
+    public void parallelAggregations() {
+        IntColumn.Builder builder = builder();
+        for (int i = 0; i < 100_000; i++) {
+            builder.add(i % 1000 == 0 ? null : i);
+        }
+        IntColumn column = builder.storage(Storage.OFF_HEAP).build();
+        Parallelism parallelism = Parallelism.of(ForkJoinPool.commonPool(), 0);
+        assertEquals(column.sum(), column.sum(parallelism));
+        assertEquals(1, column.min(parallelism).getAsInt());
+        assertEquals(99_999, column.max(parallelism).getAsInt());
+        assertEquals(99_900, column.count(parallelism));
+        assertEquals(column.mean().getAsDouble(), column.mean(parallelism).getAsDouble(), 0);
+        assertEquals(column.variance().getAsDouble(), column.variance(parallelism).getAsDouble(), 1e-3);
+        column.release();
+    }
+
+
+    @Test
+    public void statistics() {
+        ColumnStatistics<Integer> statistics = IntColumn.builder(ID).add(3).addNull().add(-1).add(3).build().getStatistics();
+        assertEquals(1, statistics.getNullCount());
+        assertEquals(Option.of(-1), statistics.getMin());
+        assertEquals(Option.of(3), statistics.getMax());
+        assertFalse(statistics.isSorted());
+        assertEquals(2, statistics.getDistinctCount());
+        assertFalse(statistics.isDistinctCountExact());
+
+        IntColumn column = IntColumn.ofAll(ID, IntStream.range(0, 1_000_000));
+        assertTrue(column.getStatistics().isSorted());
+        assertEquals(1_000_000, column.getStatistics().getDistinctCount(), 50_000);
+        assertEquals(Option.none(), IntColumn.builder(ID).addNull().build().getStatistics().getMin());
+    }
+
+    @Test
+    public void isBetween() {
+        // spans several zone map blocks, some of which match entirely, partially, or not at all
+        IntColumn.Builder builder = IntColumn.builder(ID);
+        for (int i = 0; i < 300_000; i++) {
+            if (i % 7 == 0) {
+                builder.addNull();
+            } else {
+                builder.add(i < 200_000 ? i / 1000 : i % 100);
+            }
+        }
+        IntColumn column = builder.build();
+        int[][] ranges = {{0, 0}, {50, 150}, {0, 99}, {-10, 1000}, {200, 300}, {10, 5}};
+        for (int[] range : ranges) {
+            BooleanColumn mask = column.isBetween(range[0], range[1]);
+            assertEquals(column.getRowCount(), mask.getRowCount());
+            for (int rowIndex = 0; rowIndex < column.getRowCount(); rowIndex++) {
+                int value = column.getValueAt(rowIndex);
+                boolean expected = !column.isNull(rowIndex) && value >= range[0] && value <= range[1];
+                if (mask.getValueAt(rowIndex) != expected) {
+                    fail("Row " + rowIndex + " in [" + range[0] + ", " + range[1] + "]");
+                }
+            }
+        }
+        assertEquals(1, IntColumn.ofAll(ID, 1, 2, 3, 4).slice(1, 3).isBetween(3, 4).cardinality());
+    }
+
+}
@@ -21,6 +21,7 @@ import org.junit.Test;
 import static ch.netzwerg.paleo.ColumnIds.*;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class LongColumnTest extends AbstractBaseColumnTest<Long, LongColumn> {
 
@@ -41,4 +42,45 @@ public class LongColumnTest extends AbstractBaseColumnTest<Long, LongColumn> {
         assertArrayEquals(new long[]{42L, 33L, 69L, 99L, 7093740276L}, column.valueStream().toArray());
     }
 
+    @Test
+    public void builderWithExpectedSize() {
+        LongColumn.Builder builder = LongColumn.builder(ID, 1).add(1L).addAll(2L, 3L);
+        LongColumn column = builder.build();
+        LongColumn extended = builder.add(4L).build();
+        assertArrayEquals(new long[]{1L, 2L, 3L}, column.valueStream().toArray());
+        assertArrayEquals(new long[]{1L, 2L, 3L, 4L}, extended.valueStream().toArray());
+    }
+
+    @Test
+    public void missingValues() {
+        LongColumn column = builder().add(1L).add((Long) null).add(3L).build();
+        assertEquals(1, column.getNullCount());
+        assertTrue(column.isNull(1));
+        assertArrayEquals(new long[]{1L, 3L}, column.nonNullValueStream().toArray());
+    }
+
+    @Test
+    public void offHeapStorage() {
+        LongColumn column = builder().storage(Storage.OFF_HEAP).add(42).add(7093740276L).build();
+        assertEquals(Storage.OFF_HEAP, column.getStorage());
+        assertArrayEquals(new long[]{42L, 7093740276L}, column.valueStream().toArray());
+        column.release();
+    }
+
+    @Test
+    public void aggregations() {
+        for (Storage storage : Storage.values()) {
+            LongColumn column = builder().storage(storage).add(7093740276L).addNull().add(-4L).add(10L).build();
+            assertEquals(7093740282L, column.sum());
+            assertEquals(3, column.count());
+            assertEquals(-4L, column.min().getAsLong());
+            assertEquals(7093740276L, column.max().getAsLong());
+            assertEquals(3, column.mean(2, 4).getAsDouble(), 0);
+            assertEquals(98, column.variance(2, 4).getAsDouble(), 0);
+            assertEquals(6L, column.sum(new int[]{3, 1, 2}));
+            assertEquals(2, column.count(new int[]{3, 1, 2}));
+            column.release();
+        }
+    }
+
 }
@@ -16,20 +16,17 @@
 
 package ch.netzwerg.paleo;
 
+import io.vavr.collection.Array;
+import io.vavr.control.Option;
 import org.junit.Test;
 
 import static ch.netzwerg.paleo.ColumnIds.StringColumnId;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
-public class StringColumnTest extends AbstractColumnTest<String, StringColumn> {
+public class StringColumnTest extends AbstractBaseColumnTest<String, StringColumn> {
 
     private static final StringColumnId ID = StringColumnId.of("test");
 
-    @Override
-    String generateValue() {
-        return String.valueOf(System.currentTimeMillis());
-    }
-
     @Override
     protected StringColumn.Builder builder() {
         return StringColumn.builder(ID);
@@ -44,4 +41,86 @@ public class StringColumnTest extends AbstractColumnTest<String, StringColumn> {
         assertEquals("zzz", column.getValueAt(column.getRowCount() - 1));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void values() {
+        StringColumn column = builder().add("foo").add("").add("bar").build();
+        Array<String> expected = Array.of("foo", "", "bar");
+        assertEquals(expected, column.getValues());
+        assertEquals(expected, column.valueStream().toArray());
+    }
+
+    @Test
+    public void nonAsciiValues() {
+        String[] values = {"°", "Grüezi", "日本語", "\uD83D\uDE00 smiley", "\uD800 unpaired"};
+        StringColumn column = builder().addAll(values).build();
+        for (int i = 0; i < values.length - 1; i++) {
+            assertEquals(values[i], column.getValueAt(i));
+        }
+        assertEquals("? unpaired", column.getValueAt(values.length - 1));
+        assertEquals(2, column.getByteLengthAt(0));
+    }
+
+    @Test
+    public void nullValues() {
+        StringColumn column = builder().add("foo").add(null).add("bar").build();
+        assertEquals(3, column.getRowCount());
+        assertNull(column.getValueAt(1));
+        assertTrue(column.isNull(1));
+        assertFalse(column.isNull(2));
+        assertEquals("bar", column.getValueAt(2));
+    }
+
+    @Test
+    public void rawComparison() {
+        StringColumn column = builder().addAll("bla", "blu", "bla", "bl", "").add(null).build();
+        StringColumn other = builder().addAll("xyz", "bla").build();
+
+        assertTrue(column.equalsAt(0, column, 2));
+        assertTrue(column.equalsAt(0, other, 1));
+        assertFalse(column.equalsAt(0, column, 1));
+        assertFalse(column.equalsAt(0, column, 3));
+        assertFalse(column.equalsAt(0, column, 5));
+        assertTrue(column.equalsAt(5, column, 5));
+
+        assertEquals(column.hashCodeAt(0), other.hashCodeAt(1));
+
+        assertTrue(column.compareAt(0, column, 1) < 0);
+        assertTrue(column.compareAt(1, column, 0) > 0);
+        assertEquals(0, column.compareAt(0, other, 1));
+        assertTrue(column.compareAt(3, column, 0) < 0);
+        assertTrue(column.compareAt(4, column, 3) < 0);
+        assertTrue(column.compareAt(5, column, 0) > 0);
+        assertTrue(other.compareAt(0, column, 0) > 0);
+    }
+
+    @Test
+    public void continueBuildingAfterBuild() {
+        StringColumn.Builder builder = builder().add("foo");
+        StringColumn column = builder.build();
+        StringColumn extended = builder.add("bar").build();
+        assertEquals(Array.of("foo"), column.getValues());
+        assertEquals(Array.of("foo", "bar"), extended.getValues());
+    }
+
+    @Test
+    public void gather() {
+        StringColumn column = builder().addAll("a", null, "bçd", "e").build().slice(1, 4);
+        StringColumn gathered = column.gather(new int[]{2, 1, 0, 1});
+        assertEquals(Array.of("e", "bçd", null, "bçd"), gathered.getValues());
+        assertTrue(gathered.equalsAt(1, column, 1));
+        assertEquals(0, column.gather(new int[0]).getRowCount());
+    }
+
+
+    @Test
+    public void statistics() {
+        ColumnStatistics<String> statistics = StringColumn.ofAll(ID, "b", null, "ab", "b", "c").getStatistics();
+        assertEquals(1, statistics.getNullCount());
+        assertEquals(Option.of("ab"), statistics.getMin());
+        assertEquals(Option.of("c"), statistics.getMax());
+        assertFalse(statistics.isSorted());
+        assertEquals(3, statistics.getDistinctCount());
+        assertTrue(StringColumn.ofAll(ID, "a", "a", "b").getStatistics().isSorted());
+    }
+
+}
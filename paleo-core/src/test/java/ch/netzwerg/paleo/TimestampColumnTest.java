@@ -16,15 +16,21 @@
 
 package ch.netzwerg.paleo;
 
+import io.vavr.Tuple;
 import io.vavr.collection.Array;
+import io.vavr.control.Option;
 import org.junit.Test;
 
 import java.time.Instant;
 
 import static ch.netzwerg.paleo.ColumnIds.TimestampColumnId;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
-public class TimestampColumnTest extends AbstractColumnTest<Instant, TimestampColumn> {
+public class TimestampColumnTest extends AbstractBaseColumnTest<Instant, TimestampColumn> {
 
     private static final Instant AUG_26_1975 = Instant.parse("1975-08-26T12:08:30.00Z");
     private static final Instant JAN_08_2008 = Instant.parse("2006-01-08T23:43:30.00Z");
@@ -32,11 +38,6 @@ public class TimestampColumnTest extends AbstractColumnTest<Instant, TimestampCo
 
     private static final TimestampColumnId ID = TimestampColumnId.of("test");
 
-    @Override
-    Instant generateValue() {
-        return Instant.now();
-    }
-
     @Override
     protected TimestampColumn.Builder builder() {
         return TimestampColumn.builder(ID);
@@ -49,6 +50,76 @@ public class TimestampColumnTest extends AbstractColumnTest<Instant, TimestampCo
         assertEquals(3, column.getRowCount());
         assertEquals(JAN_08_2008, column.getValueAt(1));
         assertEquals(Array.of(AUG_26_1975, JAN_08_2008, OCT_26_1947), column.getValues());
+        assertEquals(Array.of(AUG_26_1975, JAN_08_2008, OCT_26_1947), column.valueStream().toArray());
+    }
+
+    @Test
+    public void subSecondPrecision() {
+        Instant withNanos = Instant.ofEpochSecond(-42, 123_456_789);
+        TimestampColumn column = builder().add(AUG_26_1975).add(withNanos).build();
+        assertEquals(AUG_26_1975, column.getValueAt(0));
+        assertEquals(withNanos, column.getValueAt(1));
+        assertEquals(-42, column.getEpochSecondAt(1));
+        assertEquals(123_456_789, column.getNanoAt(1));
+        assertArrayEquals(new long[]{AUG_26_1975.toEpochMilli(), withNanos.toEpochMilli()}, column.epochMilliStream().toArray());
+        assertArrayEquals(new long[]{AUG_26_1975.getEpochSecond(), -42}, column.epochSecondStream().toArray());
+    }
+
+    @Test
+    public void missingValues() {
+        TimestampColumn column = builder().add(AUG_26_1975).add(null).add(OCT_26_1947).build();
+        assertEquals(3, column.getRowCount());
+        assertEquals(1, column.getNullCount());
+        assertTrue(column.isNull(1));
+        assertNull(column.getValueAt(1));
+        assertEquals(OCT_26_1947, column.getValueAt(2));
+    }
+
+    @Test
+    public void sortedness() {
+        assertTrue(builder().addAll(OCT_26_1947, AUG_26_1975, AUG_26_1975, JAN_08_2008).build().isSorted());
+        assertTrue(builder().add(AUG_26_1975).add(AUG_26_1975.plusNanos(1)).build().isSorted());
+        assertTrue(builder().build().isSorted());
+        assertFalse(builder().add(AUG_26_1975.plusNanos(1)).add(AUG_26_1975).build().isSorted());
+        assertFalse(builder().addAll(AUG_26_1975, OCT_26_1947).build().isSorted());
+        assertFalse(builder().add(OCT_26_1947).addNull().build().isSorted());
+        assertTrue(builder().addAll(AUG_26_1975, OCT_26_1947, JAN_08_2008).build().slice(1, 3).gather(new int[]{0, 1, 1}).isSorted());
+    }
+
+    @Test
+    public void rangeIndexes() {
+        TimestampColumn.Builder builder = builder();
+        Instant start = Instant.parse("2017-01-01T00:00:00Z");
+        for (int i = 0; i < 1000; i++) {
+            builder.add(start.plusMillis(100_000L * i));
+        }
+        TimestampColumn column = builder.build();
+        assertEquals(Tuple.of(0, 1000), column.rangeIndexes(Instant.MIN, Instant.MAX));
+        assertEquals(Tuple.of(10, 20), column.rangeIndexes(start.plusSeconds(1000), start.plusSeconds(2000)));
+        assertEquals(Tuple.of(11, 20), column.rangeIndexes(start.plusSeconds(1000).plusNanos(1), start.plusSeconds(2000)));
+        assertEquals(Tuple.of(1000, 1000), column.rangeIndexes(start.plusSeconds(1_000_000), Instant.MAX));
+        assertEquals(Tuple.of(5, 5), column.rangeIndexes(start.plusSeconds(500), start));
+
+        TimestampColumn slice = column.slice(100, 200);
+        assertEquals(Tuple.of(0, 100), slice.rangeIndexes(start, start.plusSeconds(30_000)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rangeIndexesOfUnsortedColumn() {
+        builder().addAll(AUG_26_1975, OCT_26_1947).build().rangeIndexes(OCT_26_1947, AUG_26_1975);
+    }
+
+
+    @Test
+    public void statistics() {
+        TimestampColumn column = TimestampColumn.builder(ID).add(AUG_26_1975).addNull().add(OCT_26_1947).add(AUG_26_1975.plusNanos(1)).build();
+        ColumnStatistics<Instant> statistics = column.getStatistics();
+        assertEquals(1, statistics.getNullCount());
+        assertEquals(Option.of(OCT_26_1947), statistics.getMin());
+        assertEquals(Option.of(AUG_26_1975.plusNanos(1)), statistics.getMax());
+        assertFalse(statistics.isSorted());
+        assertEquals(3, statistics.getDistinctCount());
+        assertEquals(Option.of(OCT_26_1947), column.slice(2, 4).getStatistics().getMin());
     }
 
-}
\ No newline at end of file
+}
@@ -17,12 +17,14 @@
 package ch.netzwerg.paleo.io;
 
 import ch.netzwerg.paleo.DataFrame;
+import ch.netzwerg.paleo.io.impl.Dialect;
 import ch.netzwerg.paleo.io.impl.ScalaParserImpl;
 import ch.netzwerg.paleo.schema.Schema;
 import io.vavr.control.Option;
 
 import java.io.File;
 import java.io.Reader;
+import java.util.concurrent.ExecutorService;
 
 public interface Parser {
 
@@ -44,12 +46,32 @@ public interface Parser {
         return ScalaParserImpl.parseViaSchemaTsv(schema);
     }
 
+    /**
+     * Parses the data file in chunks of lines (of about 16 MB each) which are processed concurrently by the given
+     * executor. The resulting columns are the same as those of {@link #tsv(Schema, File)}. The executor is not shut down.
+     */
+    static DataFrame tsv(Schema schema, File parentDir, ExecutorService executor) {
+        return ScalaParserImpl.parseViaSchemaTsv(schema, parentDir, executor);
+    }
+
     // -- Comma Separated Values
 
+    /**
+     * Parses comma separated values in which cells may be quoted by '"' as defined by RFC 4180, i.e. quoted cells may
+     * contain delimiters, line breaks, and escaped (doubled) quotes.
+     */
     static DataFrame csv(Reader in) {
         return ScalaParserImpl.parseViaReaderCsv(in, Option.none());
     }
 
+    /**
+     * Parses values separated by the given delimiter, in which cells may be quoted by the given quote char (see
+     * {@link #csv(Reader)}).
+     */
+    static DataFrame csv(Reader in, char delimiter, char quote) {
+        return ScalaParserImpl.parseViaReaderCsv(in, Option.none(), new Dialect(delimiter, quote));
+    }
+
     static DataFrame csv(Reader in, String timestampPattern) {
         return ScalaParserImpl.parseViaReaderCsv(in, Option.of(timestampPattern));
     }
@@ -58,8 +80,28 @@ public interface Parser {
         return ScalaParserImpl.parseViaSchemaCsv(schema, parentDir);
     }
 
+    static DataFrame csv(Schema schema, File parentDir, char delimiter, char quote) {
+        return ScalaParserImpl.parseViaSchemaCsv(schema, parentDir, new Dialect(delimiter, quote));
+    }
+
     static DataFrame csv(Schema schema) {
         return ScalaParserImpl.parseViaSchemaCsv(schema);
     }
 
+    static DataFrame csv(Schema schema, char delimiter, char quote) {
+        return ScalaParserImpl.parseViaSchemaCsv(schema, new Dialect(delimiter, quote));
+    }
+
+    /**
+     * Parses the data file in chunks of lines which are processed concurrently by the given executor (see
+     * {@link #tsv(Schema, File, ExecutorService)}).
+     */
+    static DataFrame csv(Schema schema, File parentDir, ExecutorService executor) {
+        return ScalaParserImpl.parseViaSchemaCsv(schema, parentDir, executor);
+    }
+
+    static DataFrame csv(Schema schema, File parentDir, char delimiter, char quote, ExecutorService executor) {
+        return ScalaParserImpl.parseViaSchemaCsv(schema, parentDir, new Dialect(delimiter, quote), executor);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo.io.impl
+
+import java.nio.{ByteBuffer, ByteOrder}
+
+/**
+  * Splits delimited text into rows and cells directly on its encoded bytes (e.g. of a memory-mapped file), which
+  * requires a charset in which delimiters and line terminators are single ASCII bytes that never occur within other
+  * characters (e.g. UTF-8 or ISO-8859-1). Special bytes are found eight at a time by SWAR ("SIMD within a register")
+  * tests on 64-bit words. Rows end at '\n', '\r', or "\r\n", empty rows are skipped. After 'nextRow()' returned true,
+  * the cells of the current row are available via 'copyCell'.
+  *
+  * Quoted cells are handled as in 'Tokenizer' (the 'quote' char must be ASCII as well). As the buffer may be read-only,
+  * escaped quotes are only removed when copying such a cell.
+  */
+class ByteTokenizer(buffer: ByteBuffer, delimiter: Byte, quote: Int = Tokenizer.NoQuote) {
+
+  import ByteTokenizer._
+
+  private val bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN) // first byte in the lowest bits of a word
+  private val limit = bytes.limit()
+  private val delimiterPattern = broadcast(delimiter)
+  private val quotePattern = broadcast(quote.toByte)
+  private var position = 0
+
+  private var cellStarts = new Array[Int](Tokenizer.DefaultCellCapacity)
+  private var cellEnds = new Array[Int](Tokenizer.DefaultCellCapacity)
+  private var cellsEscaped = new Array[Boolean](Tokenizer.DefaultCellCapacity) // whether a quoted cell needs unescaping
+  private var count = 0
+
+  def cellCount: Int = count
+
+  def cellOffset(cellIndex: Int): Int = cellStarts(cellIndex)
+
+  /**
+    * Returns the number of bytes of the given cell, which is an upper bound (of its unescaped length) for quoted cells.
+    */
+  def cellLength(cellIndex: Int): Int = cellEnds(cellIndex) - cellStarts(cellIndex)
+
+  /**
+    * Copies the (unescaped) bytes of the given cell to the start of 'target' (which must hold at least 'cellLength'
+    * bytes) and returns their number.
+    */
+  def copyCell(cellIndex: Int, target: Array[Byte]): Int = {
+    val offset = cellStarts(cellIndex)
+    val length = cellLength(cellIndex)
+    if (cellsEscaped(cellIndex)) {
+      return copyUnescaped(offset, offset + length, target)
+    }
+    var i = 0
+    while (i < length) {
+      target(i) = bytes.get(offset + i)
+      i += 1
+    }
+    length
+  }
+
+  /**
+    * Advances to the next non-empty row and returns false if there is none.
+    */
+  def nextRow(): Boolean = {
+    count = 0
+    while (position < limit && isLineTerminator(bytes.get(position))) {
+      position += 1
+    }
+    if (position == limit) {
+      return false
+    }
+    while (true) {
+      if (position < limit && (bytes.get(position) & 0xFF) == quote) {
+        addQuotedCell()
+      } else {
+        val cellStart = position
+        position = nextSpecialByte(position)
+        addCell(cellStart, position, escaped = false)
+      }
+      if (position == limit || bytes.get(position) != delimiter) {
+        return true
+      }
+      position += 1
+    }
+    false
+  }
+
+  /**
+    * Adds the cell starting with a quote at the current position (see 'Tokenizer').
+    */
+  private def addQuotedCell(): Unit = {
+    position += 1
+    val cellStart = position
+    var escaped = false
+    while (true) {
+      position = nextQuote(position)
+      if (position == limit) {
+        addCell(cellStart, position, escaped)
+        return
+      }
+      position += 1
+      if (position < limit && (bytes.get(position) & 0xFF) == quote) {
+        escaped = true
+        position += 1
+      } else {
+        if (position < limit && bytes.get(position) != delimiter && !isLineTerminator(bytes.get(position))) {
+          position = nextSpecialByte(position)
+          addCell(cellStart, position, escaped = true)
+        } else if (escaped) {
+          addCell(cellStart, position, escaped = true)
+        } else {
+          addCell(cellStart, position - 1, escaped = false)
+        }
+        return
+      }
+    }
+  }
+
+  /**
+    * Copies the given range of a quoted cell (without its opening quote) without its closing quote and with doubled
+    * quotes replaced by single ones.
+    */
+  private def copyUnescaped(start: Int, end: Int, target: Array[Byte]): Int = {
+    var read = start
+    var write = 0
+    var quoted = true
+    while (read < end) {
+      val b = bytes.get(read)
+      if (quoted && (b & 0xFF) == quote) {
+        if (read + 1 < end && (bytes.get(read + 1) & 0xFF) == quote) {
+          target(write) = b
+          write += 1
+          read += 1
+        } else {
+          quoted = false
+        }
+      } else {
+        target(write) = b
+        write += 1
+      }
+      read += 1
+    }
+    write
+  }
+
+  /**
+    * Returns the index of the first delimiter or line terminator at or after the given one (or the limit).
+    */
+  private def nextSpecialByte(from: Int): Int = {
+    var i = from
+    while (i + java.lang.Long.BYTES <= limit) {
+      val word = bytes.getLong(i)
+      val matches = zeroBytes(word ^ delimiterPattern) | zeroBytes(word ^ NewlinePattern) | zeroBytes(word ^ CarriageReturnPattern)
+      if (matches != 0) {
+        return i + (java.lang.Long.numberOfTrailingZeros(matches) >>> 3)
+      }
+      i += java.lang.Long.BYTES
+    }
+    while (i < limit) {
+      val b = bytes.get(i)
+      if (b == delimiter || isLineTerminator(b)) {
+        return i
+      }
+      i += 1
+    }
+    limit
+  }
+
+  /**
+    * Returns the index of the first quote at or after the given one (or the limit).
+    */
+  private def nextQuote(from: Int): Int = indexOf(bytes, quotePattern, from, limit)
+
+  private def addCell(start: Int, end: Int, escaped: Boolean): Unit = {
+    if (count == cellStarts.length) {
+      cellStarts = java.util.Arrays.copyOf(cellStarts, count * 2)
+      cellEnds = java.util.Arrays.copyOf(cellEnds, count * 2)
+      cellsEscaped = java.util.Arrays.copyOf(cellsEscaped, count * 2)
+    }
+    cellStarts(count) = start
+    cellEnds(count) = end
+    cellsEscaped(count) = escaped
+    count += 1
+  }
+
+}
+
+object ByteTokenizer {
+
+  private val LowBits = 0x0101010101010101L
+  private val HighBits = 0x8080808080808080L
+  private val NewlinePattern = broadcast('\n')
+  private val CarriageReturnPattern = broadcast('\r')
+
+  private def broadcast(b: Byte): Long = (b & 0xFFL) * LowBits
+
+  /**
+    * Sets the high bit of the lowest zero byte of the given word (higher bits may be false positives due to borrows,
+    * which is why only the lowest one is used).
+    */
+  private def zeroBytes(word: Long): Long = (word - LowBits) & ~word & HighBits
+
+  /**
+    * Returns whether the given buffer contains the given byte (stopping at its first occurrence).
+    */
+  def contains(buffer: ByteBuffer, b: Byte): Boolean = {
+    val limit = buffer.limit()
+    indexOf(buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN), broadcast(b), 0, limit) < limit
+  }
+
+  /**
+    * Returns the index of the first byte matching the given (broadcast) pattern in the given little-endian buffer at or
+    * after 'from' (or 'limit').
+    */
+  private def indexOf(bytes: ByteBuffer, pattern: Long, from: Int, limit: Int): Int = {
+    var i = from
+    while (i + java.lang.Long.BYTES <= limit) {
+      val matches = zeroBytes(bytes.getLong(i) ^ pattern)
+      if (matches != 0) {
+        return i + (java.lang.Long.numberOfTrailingZeros(matches) >>> 3)
+      }
+      i += java.lang.Long.BYTES
+    }
+    while (i < limit && bytes.get(i) != pattern.toByte) {
+      i += 1
+    }
+    i
+  }
+
+  private def isLineTerminator(b: Byte): Boolean = b == '\n' || b == '\r'
+
+}
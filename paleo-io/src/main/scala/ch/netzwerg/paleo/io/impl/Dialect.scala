@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo.io.impl
+
+/**
+  * Delimiter and optional quote char of delimited text (see 'Tokenizer'). Tab-delimited values are not quoted, comma
+  * separated values are quoted by '"' (as defined by RFC 4180) unless configured otherwise.
+  */
+case class Dialect(delimiter: Char, quote: Int = Tokenizer.NoQuote) {
+
+  require(!isLineTerminator(delimiter), "Delimiter must not be a line terminator")
+  require(quote == Tokenizer.NoQuote || (quote >= Char.MinValue && quote <= Char.MaxValue && !isLineTerminator(quote.toChar)),
+    "Quote must be a char other than a line terminator")
+  require(quote != delimiter, "Quote must differ from delimiter")
+
+  private def isLineTerminator(c: Char): Boolean = c == '\n' || c == '\r'
+
+}
+
+object Dialect {
+
+  val Tsv: Dialect = Dialect('\t')
+  val Csv: Dialect = Dialect(',', '"')
+
+}
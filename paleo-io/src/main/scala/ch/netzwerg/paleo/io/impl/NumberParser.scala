@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo.io.impl
+
+/**
+  * Parses numbers directly from ASCII bytes without allocating. Only plain decimal notations are handled, all other
+  * cells (e.g. "NaN", "0x1p3", more than 18 significant digits, or non-ASCII digits) yield a 'NotParsed' result and
+  * should be passed on to the JDK (which also produces the appropriate error for invalid cells).
+  */
+object NumberParser {
+
+  /** Result of 'parseLong' for cells outside the fast path (never a result itself, as it has 19 digits). */
+  val NotParsed: Long = Long.MinValue
+
+  private val MaxDigits = 18 // any 18-digit decimal fits into a long
+  private val MaxExactMantissa = 1L << 53 // largest mantissa which is exactly representable as a double
+  private val MaxExponentDigits = 4
+
+  // exactly representable powers of ten (see Clinger, "How to Read Floating Point Numbers Accurately", 1990)
+  private val PowersOfTen: Array[Double] = Array(
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22)
+
+  /**
+    * Parses an optionally signed sequence of at most 18 decimal digits, or returns 'NotParsed'.
+    */
+  def parseLong(bytes: Array[Byte], offset: Int, length: Int): Long = {
+    val end = offset + length
+    var i = offset
+    val negative = i < end && bytes(i) == '-'
+    if (i < end && (bytes(i) == '-' || bytes(i) == '+')) {
+      i += 1
+    }
+    if (i == end || end - i > MaxDigits) {
+      return NotParsed
+    }
+    var value = 0L
+    while (i < end) {
+      val digit = bytes(i) - '0'
+      if (digit < 0 || digit > 9) {
+        return NotParsed
+      }
+      value = value * 10 + digit
+      i += 1
+    }
+    if (negative) -value else value
+  }
+
+  /**
+    * Parses an optionally signed decimal with optional fraction and exponent (e.g. "-12.5e3"), or returns NaN. Only
+    * values whose significant digits form an integer up to 2^53 and whose decimal exponent is within [-22, 22] are
+    * parsed, because a single multiplication or division of two exact doubles is then correctly rounded (Clinger's
+    * fast path). The results are identical to 'java.lang.Double.parseDouble'.
+    */
+  def parseDouble(bytes: Array[Byte], offset: Int, length: Int): Double = {
+    val end = offset + length
+    var i = offset
+    val negative = i < end && bytes(i) == '-'
+    if (i < end && (bytes(i) == '-' || bytes(i) == '+')) {
+      i += 1
+    }
+
+    var mantissa = 0L
+    var significantDigits = 0
+    var digits = 0
+    var exponent = 0
+    var fraction = false
+    var inDigits = true
+    while (i < end && inDigits) {
+      val b = bytes(i)
+      val digit = b - '0'
+      if (digit >= 0 && digit <= 9) {
+        if (mantissa != 0 || digit != 0) {
+          significantDigits += 1
+          if (significantDigits > MaxDigits) {
+            return Double.NaN
+          }
+          mantissa = mantissa * 10 + digit
+        }
+        if (fraction) {
+          exponent -= 1
+        }
+        digits += 1
+        i += 1
+      } else if (b == '.' && !fraction) {
+        fraction = true
+        i += 1
+      } else {
+        inDigits = false
+      }
+    }
+    if (digits == 0) {
+      return Double.NaN
+    }
+
+    if (i < end && (bytes(i) == 'e' || bytes(i) == 'E')) {
+      i += 1
+      val negativeExponent = i < end && bytes(i) == '-'
+      if (i < end && (bytes(i) == '-' || bytes(i) == '+')) {
+        i += 1
+      }
+      if (i == end || end - i > MaxExponentDigits) {
+        return Double.NaN
+      }
+      var explicitExponent = 0
+      while (i < end) {
+        val digit = bytes(i) - '0'
+        if (digit < 0 || digit > 9) {
+          return Double.NaN
+        }
+        explicitExponent = explicitExponent * 10 + digit
+        i += 1
+      }
+      exponent += (if (negativeExponent) -explicitExponent else explicitExponent)
+    }
+    if (i != end) {
+      return Double.NaN
+    }
+
+    val value = if (mantissa == 0) {
+      0.0
+    } else if (mantissa > MaxExactMantissa || exponent < -22 || exponent > 22) {
+      return Double.NaN
+    } else if (exponent < 0) {
+      mantissa / PowersOfTen(-exponent)
+    } else {
+      mantissa * PowersOfTen(exponent)
+    }
+    if (negative) -value else value
+  }
+
+  /**
+    * Same semantics as 'java.lang.Boolean.parseBoolean', i.e. "true" (ignoring case) is true, anything else is false.
+    */
+  def parseBoolean(bytes: Array[Byte], offset: Int, length: Int): Boolean = {
+    length == 4 &&
+      (bytes(offset) | 0x20) == 't' &&
+      (bytes(offset + 1) | 0x20) == 'r' &&
+      (bytes(offset + 2) | 0x20) == 'u' &&
+      (bytes(offset + 3) | 0x20) == 'e'
+  }
+
+}
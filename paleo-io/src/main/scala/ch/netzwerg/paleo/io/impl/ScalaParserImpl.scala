@@ -16,11 +16,17 @@
 
 package ch.netzwerg.paleo.io.impl
 
-import java.io.{File, Reader}
+import java.io.{File, FileInputStream, InputStreamReader, Reader}
+import java.nio.{ByteBuffer, MappedByteBuffer}
+import java.nio.channels.FileChannel
+import java.nio.channels.FileChannel.MapMode
+import java.nio.charset.{Charset, StandardCharsets}
+import java.nio.file.StandardOpenOption
 import java.time.format.DateTimeFormatter
 import java.time.{Instant, LocalDateTime, ZoneId}
-import java.util.Scanner
-import java.util.regex.Pattern
+import java.util.NoSuchElementException
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.{Callable, ExecutionException, Executor, ExecutorCompletionService, ExecutorService, Future, FutureTask}
 
 import ch.netzwerg.paleo.ColumnIds._
 import io.vavr.collection
@@ -30,67 +36,80 @@ import ch.netzwerg.paleo._
 import ch.netzwerg.paleo.schema.{Field, Schema}
 
 import scala.collection.JavaConverters._
-import scala.io.Source
+import scala.collection.mutable.ArrayBuffer
 
 object ScalaParserImpl {
 
-  val LineDelimiter: Pattern = Pattern.compile("[\\r\\n]+")
-
-  private val TabSplitter = (line: String) => line.split("\t", -1) // allow empty values
-  private val CommaSplitter = (line: String) => line.split(",", -1) // allow empty values
+  val DefaultChunkSize: Int = 1 << 24 // bytes per chunk of a file which is parsed in parallel
+  private val MaxSegmentSize: Int = 1 << 30 // bytes per memory-mapped segment of a file which is parsed sequentially
 
   // -- Tab Delimited Values
 
   def parseViaReaderTsv(reader: Reader, timestampPattern: Option[String]): DataFrame = {
-    parseViaReader(reader, timestampPattern, TabSplitter, TabSplitter, TabSplitter)
+    parseViaReader(reader, timestampPattern, Dialect.Tsv)
   }
 
   def parseViaSchemaTsv(schema: Schema, parentDir: File): DataFrame = {
-    parseViaSchema(schema, parentDir, TabSplitter)
+    parseViaSchema(schema, parentDir, Dialect.Tsv)
   }
 
-  def parseViaSchemaTsv(schema: Schema): DataFrame = parseViaSchema(schema, parseViaFieldsTsv)
+  def parseViaSchemaTsv(schema: Schema): DataFrame = parseViaSchema(schema, Dialect.Tsv)
 
-  private def parseViaFieldsTsv(fields: _root_.io.vavr.collection.Seq[Field], lines: java.util.Iterator[String], rowIndexOffset: Int, dataFrameMetaData: Map[String, String]): DataFrame = {
-    parseViaFields(fields, lines, rowIndexOffset, dataFrameMetaData, TabSplitter)
+  def parseViaSchemaTsv(schema: Schema, parentDir: File, executor: ExecutorService): DataFrame = {
+    parseViaSchemaInChunks(schema, parentDir, Dialect.Tsv, executor, DefaultChunkSize)
   }
 
   // -- Comma Separated Values
 
   def parseViaReaderCsv(reader: Reader, timestampPattern: Option[String]): DataFrame = {
-    parseViaReader(reader, timestampPattern, CommaSplitter, CommaSplitter, CommaSplitter)
+    parseViaReaderCsv(reader, timestampPattern, Dialect.Csv)
+  }
+
+  def parseViaReaderCsv(reader: Reader, timestampPattern: Option[String], dialect: Dialect): DataFrame = {
+    parseViaReader(reader, timestampPattern, dialect)
   }
 
   def parseViaSchemaCsv(schema: Schema, parentDir: File): DataFrame = {
-    parseViaSchema(schema, parentDir, CommaSplitter)
+    parseViaSchemaCsv(schema, parentDir, Dialect.Csv)
   }
 
-  def parseViaSchemaCsv(schema: Schema): DataFrame = parseViaSchema(schema, parseViaFieldsCsv)
+  def parseViaSchemaCsv(schema: Schema, parentDir: File, dialect: Dialect): DataFrame = {
+    parseViaSchema(schema, parentDir, dialect)
+  }
+
+  def parseViaSchemaCsv(schema: Schema): DataFrame = parseViaSchema(schema, Dialect.Csv)
+
+  def parseViaSchemaCsv(schema: Schema, dialect: Dialect): DataFrame = parseViaSchema(schema, dialect)
 
-  private def parseViaFieldsCsv(fields: _root_.io.vavr.collection.Seq[Field], lines: java.util.Iterator[String], rowIndexOffset: Int, dataFrameMetaData: Map[String, String]): DataFrame = {
-    parseViaFields(fields, lines, rowIndexOffset, dataFrameMetaData, CommaSplitter)
+  def parseViaSchemaCsv(schema: Schema, parentDir: File, executor: ExecutorService): DataFrame = {
+    parseViaSchemaCsv(schema, parentDir, Dialect.Csv, executor)
+  }
+
+  def parseViaSchemaCsv(schema: Schema, parentDir: File, dialect: Dialect, executor: ExecutorService): DataFrame = {
+    parseViaSchemaInChunks(schema, parentDir, dialect, executor, DefaultChunkSize)
   }
 
   // -- Generic Column/Type/Value extraction
 
-  private def parseViaReader(reader: Reader,
-                             timestampPattern: Option[String],
-                             columnNameExtractor: (String) => Array[String],
-                             columnTypeExtractor: (String) => Array[String],
-                             valueExtractor: (String) => Array[String]): DataFrame = {
-    val scanner: Scanner = new Scanner(reader)
-    scanner.useDelimiter(LineDelimiter)
-    val lines = scanner
+  private def parseViaReader(reader: Reader, timestampPattern: Option[String], dialect: Dialect): DataFrame = {
+    val tokenizer = new Tokenizer(reader, dialect.delimiter, dialect.quote)
 
-    val columnNames = columnNameExtractor(lines.next())
-    val columnTypes = columnTypeExtractor(lines.next())
+    val columnNames = nextHeaderRow(tokenizer, "column names")
+    val columnTypes = nextHeaderRow(tokenizer, "column types")
 
     val fields: collection.List[Field] = createFields(columnNames, columnTypes, timestampPattern)
 
-    parseViaFields(fields, lines, 2, HashMap.empty(), valueExtractor)
+    parseViaFields(fields, tokenizer, 2, HashMap.empty())
 
   }
 
+  private def nextHeaderRow(tokenizer: Tokenizer, description: String): Array[String] = {
+    if (!tokenizer.nextRow()) {
+      throw new NoSuchElementException(s"Missing header row ($description)")
+    }
+    tokenizer.cellStrings()
+  }
+
   private def createFields(columnNames: Array[String], columnTypes: Array[String], timestampFormat: Option[String]) = {
     val fields: Array[Field] = for ((columnName, columnTypeDesc) <- columnNames.zip(columnTypes)) yield {
       val columnType = ColumnType.getByDescriptionOrDefault(columnTypeDesc, ColumnType.STRING)
@@ -104,66 +123,412 @@ object ScalaParserImpl {
     _root_.io.vavr.collection.List.ofAll[Field](fields.toIterable.asJava)
   }
 
-  private def parseViaSchema(schema: Schema, parentDir: File, valueExtractor: (String) => Array[String]): DataFrame = {
-    val fields = schema.getFields
-    val source = schema.getCharsetName.asScala match {
-      case Some(charsetName) => Source.fromFile(new File(parentDir, schema.getDataFileName), charsetName)
-      case None => Source.fromFile(new File(parentDir, schema.getDataFileName))
+  /**
+    * Memory-maps the data file (in segments of whole lines) and tokenizes its bytes directly, unless the charset
+    * requires decoding the whole file to chars first (see 'ByteTokenizer').
+    */
+  private def parseViaSchema(schema: Schema, parentDir: File, dialect: Dialect): DataFrame = {
+    val file = new File(parentDir, schema.getDataFileName)
+    val charset = this.charset(schema)
+    if (!isAsciiCompatible(charset, dialect)) {
+      return parseViaSchema(schema, new InputStreamReader(new FileInputStream(file), charset), dialect)
     }
+    val channel = FileChannel.open(file.toPath, StandardOpenOption.READ)
     try {
-      val lines = source.getLines()
-      parseViaFields(fields, lines.asJava, 0, schema.getMetaData, valueExtractor)
+      val accumulators = createAccs(schema.getFields)
+      val boundaries = chunkBoundaries(channel, MaxSegmentSize, dialect, CurrentThread)
+      var rowCount = 0
+      for (segmentIndex <- boundaries.indices.dropRight(1)) {
+        val tokenizer = createTokenizer(map(channel, boundaries(segmentIndex), boundaries(segmentIndex + 1)), dialect)
+        rowCount += accumulate(accumulators, tokenizer, charset, rowCount)
+      }
+      DataFrame.ofAll(accumulators.map(_.build()).toIterable.asJava).withMetaData(schema.getMetaData)
     } finally {
-      source.close()
+      channel.close()
     }
   }
 
-  private def parseViaSchema(schema: Schema, parseLogic: (_root_.io.vavr.collection.Seq[Field], java.util.Iterator[String], Int, Map[String, String]) => DataFrame): DataFrame = {
+  private def parseViaSchema(schema: Schema, dialect: Dialect): DataFrame = {
     val inputStream = ScalaParserImpl.getClass.getResourceAsStream(schema.getDataFileName)
-    val scanner = schema.getCharsetName.asScala match {
-      case Some(charsetName) => new Scanner(inputStream, charsetName)
-      case None => new Scanner(inputStream)
-    }
+    parseViaSchema(schema, new InputStreamReader(inputStream, charset(schema)), dialect)
+  }
+
+  private def parseViaSchema(schema: Schema, reader: Reader, dialect: Dialect): DataFrame = {
     try {
-      scanner.useDelimiter(ScalaParserImpl.LineDelimiter)
-      parseLogic(schema.getFields, scanner, 0, schema.getMetaData)
+      parseViaFields(schema.getFields, new Tokenizer(reader, dialect.delimiter, dialect.quote), 0, schema.getMetaData)
     } finally {
-      if (inputStream != null) inputStream.close()
-      if (scanner != null) scanner.close()
+      reader.close()
+    }
+  }
+
+  private def charset(schema: Schema): Charset = schema.getCharsetName.asScala match {
+    case Some(charsetName) => Charset.forName(charsetName)
+    case None => Charset.defaultCharset()
+  }
+
+  private def parseViaFields(fields: _root_.io.vavr.collection.Seq[Field], tokenizer: Tokenizer, rowIndexOffset: Int, dataFrameMetaData: Map[String, String]): DataFrame = {
+    val columns = try {
+      parseColumns(fields, tokenizer)
+    } catch {
+      case e: InconsistentRowException => throw e.withRowIndexOffset(rowIndexOffset)
     }
+    DataFrame.ofAll(columns.toIterable.asJava).withMetaData(dataFrameMetaData)
   }
 
-  private def parseViaFields(fields: _root_.io.vavr.collection.Seq[Field], lines: java.util.Iterator[String], rowIndexOffset: Int, dataFrameMetaData: Map[String, String], valueExtractor: (String) => Array[String]): DataFrame = {
-    val scalaFields = fields.toJavaList.asScala
-    val accumulators = scalaFields.map(createAcc)
+  private def parseColumns(fields: _root_.io.vavr.collection.Seq[Field], tokenizer: Tokenizer): Array[Column[_]] = {
+    val accumulators = createAccs(fields)
 
     var rowIndex = 1
-    for (line <- lines.asScala) {
-      val values = valueExtractor(line)
-
-      if (values.length != accumulators.length) {
-        val rowIndexForHumans = rowIndex + rowIndexOffset
-        val plural = if (values.length > 1) "s" else ""
-        val msg = s"Row '$rowIndexForHumans' contains '${values.length}' value$plural (but should match column count '${accumulators.length}')"
-        throw new scala.IllegalArgumentException(msg)
+    while (tokenizer.nextRow()) {
+      val valueCount = tokenizer.cellCount
+
+      if (valueCount != accumulators.length) {
+        throw new InconsistentRowException(rowIndex, valueCount, accumulators.length)
       }
 
-      accumulators.zip(values).map(t => t._1.addValue(t._2))
+      val chars = tokenizer.chars
+      var columnIndex = 0
+      while (columnIndex < valueCount) {
+        accumulators(columnIndex).addValue(chars, tokenizer.cellOffset(columnIndex), tokenizer.cellLength(columnIndex))
+        columnIndex += 1
+      }
       rowIndex += 1
     }
-    val columns = accumulators.map(_.build()).asJava
-    DataFrame.ofAll(columns).withMetaData(dataFrameMetaData)
+    accumulators.map(_.build())
+  }
+
+  /**
+    * Adds all rows of the given byte tokenizer to the given accumulators and returns the number of added rows.
+    */
+  private def accumulate(accumulators: Array[Acc[_, _ <: Column[_]]], tokenizer: ByteTokenizer, charset: Charset, rowIndexOffset: Int): Int = {
+    var rowCount = 0
+    while (tokenizer.nextRow()) {
+      val valueCount = tokenizer.cellCount
+
+      if (valueCount != accumulators.length) {
+        throw new InconsistentRowException(rowIndexOffset + rowCount + 1, valueCount, accumulators.length)
+      }
+
+      var columnIndex = 0
+      while (columnIndex < valueCount) {
+        accumulators(columnIndex).addBytes(tokenizer, columnIndex, charset)
+        columnIndex += 1
+      }
+      rowCount += 1
+    }
+    rowCount
+  }
+
+  private def createAccs(fields: _root_.io.vavr.collection.Seq[Field]): Array[Acc[_, _ <: Column[_]]] = {
+    fields.toJavaList.asScala.map(createAcc).toArray
+  }
+
+  // -- Parallel parsing of files in chunks of lines
+
+  /**
+    * Splits the data file into byte ranges of about 'chunkSize' bytes (each ending after a line terminator), parses all
+    * (memory-mapped) chunks concurrently on the given executor, and concatenates their columns in order. Falls back to sequential
+    * parsing for charsets in which line terminators can not be found by looking at single bytes (e.g. UTF-16).
+    */
+  def parseViaSchemaInChunks(schema: Schema, parentDir: File, dialect: Dialect, executor: ExecutorService, chunkSize: Int): DataFrame = {
+    val charset = this.charset(schema)
+    if (!isAsciiCompatible(charset, dialect)) {
+      return parseViaSchema(schema, parentDir, dialect)
+    }
+    val channel = FileChannel.open(new File(parentDir, schema.getDataFileName).toPath, StandardOpenOption.READ)
+    try {
+      val boundaries = chunkBoundaries(channel, chunkSize, dialect, executor)
+      val futures = boundaries.indices.dropRight(1).map { chunkIndex =>
+        submit(executor) {
+          val accumulators = createAccs(schema.getFields)
+          accumulate(accumulators, createTokenizer(map(channel, boundaries(chunkIndex), boundaries(chunkIndex + 1)), dialect), charset, 0)
+          accumulators.map(_.build(): Column[_])
+        }
+      }
+      val chunks = awaitInOrder(futures)
+      val columns = schema.getFields.toJavaList.asScala.indices.map(columnIndex => concatenate(chunks.map(_ (columnIndex))))
+      DataFrame.ofAll(columns.asJava).withMetaData(schema.getMetaData)
+    } finally {
+      channel.close()
+    }
+  }
+
+  private def isAsciiCompatible(charset: Charset, dialect: Dialect): Boolean = {
+    val chars = Array(dialect.delimiter, '\r', '\n') ++ (if (dialect.quote == Tokenizer.NoQuote) None else Some(dialect.quote.toChar))
+    chars.forall(_ < 0x80) && new String(chars).getBytes(charset).sameElements(chars.map(_.toByte))
+  }
+
+  private def createTokenizer(buffer: ByteBuffer, dialect: Dialect): ByteTokenizer = {
+    new ByteTokenizer(buffer, dialect.delimiter.toByte, dialect.quote)
+  }
+
+  /**
+    * Returns the start offsets of all chunks, followed by the file size. Each chunk (but the first) starts at a row
+    * start, i.e. no row is split across chunks. If the file contains quotes (of a quoted dialect), rows may span several
+    * lines (see 'quotedChunkBoundaries'), which is why all chunks are searched for a quote first (on the given executor).
+    */
+  private def chunkBoundaries(channel: FileChannel, chunkSize: Int, dialect: Dialect, executor: Executor): Array[Long] = {
+    val size = channel.size()
+    if (size > chunkSize && dialect.quote != Tokenizer.NoQuote && containsQuote(channel, chunkSize, dialect, executor)) {
+      return quotedChunkBoundaries(channel, chunkSize, dialect, executor)
+    }
+    val boundaries = ArrayBuffer(0L)
+    var boundary = nextLineStart(channel, chunkSize.toLong, size)
+    while (boundary < size) {
+      boundaries += boundary
+      boundary = nextLineStart(channel, boundary + chunkSize, size)
+    }
+    boundaries += size
+    boundaries.toArray
+  }
+
+  /**
+    * Searches all chunks concurrently and returns as soon as one of them contains a quote (chunks which have not been
+    * searched yet are skipped then).
+    */
+  private def containsQuote(channel: FileChannel, chunkSize: Int, dialect: Dialect, executor: Executor): Boolean = {
+    val size = channel.size()
+    val found = new AtomicBoolean()
+    val completionService = new ExecutorCompletionService[Boolean](executor)
+    val futures = 0L.until(size, chunkSize.toLong).map { from =>
+      completionService.submit(new Callable[Boolean] {
+        override def call(): Boolean = found.get() || {
+          val contains = ByteTokenizer.contains(map(channel, from, Math.min(from + chunkSize, size)), dialect.quote.toByte)
+          found.compareAndSet(false, contains)
+          contains
+        }
+      })
+    }
+    try {
+      futures.exists(_ => await(completionService.take()))
+    } finally {
+      futures.foreach(_.cancel(false)) // interrupting a search would close the channel
+    }
+  }
+
+  private def nextLineStart(channel: FileChannel, from: Long, size: Long): Long = {
+    val buffer = ByteBuffer.allocate(8192)
+    var position = from
+    var terminatorFound = false
+    while (position < size) {
+      buffer.clear()
+      val read = channel.read(buffer, position)
+      var i = 0
+      while (i < read) {
+        val b = buffer.get(i)
+        val isTerminator = b == '\n' || b == '\r'
+        if (terminatorFound && !isTerminator) {
+          return position + i
+        }
+        terminatorFound |= isTerminator
+        i += 1
+      }
+      position += read
+    }
+    size
+  }
+
+  private final val RowEnd = 0 // within the line terminators after a row
+  private final val CellStart = 1
+  private final val Unquoted = 2
+  private final val Quoted = 3
+  private final val QuoteInQuoted = 4 // either a closing or an escaped quote (depending on the next byte)
+  private final val StateCount = 5
+
+  /**
+    * Like 'chunkBoundaries', but only line terminators outside of quoted cells end a row. A quote only opens a quoted
+    * cell at the start of a cell (exactly like in 'Tokenizer' and 'ByteTokenizer'), so other quotes are plain text. As
+    * the state of any byte depends on all bytes before it, each chunk is scanned concurrently for every possible state
+    * at its start (see 'scanQuoted'), and the actual states are then resolved chunk by chunk.
+    */
+  private def quotedChunkBoundaries(channel: FileChannel, chunkSize: Int, dialect: Dialect, executor: Executor): Array[Long] = {
+    val size = channel.size()
+    val chunkStarts = 0L.until(size, chunkSize.toLong)
+    val scans = chunkStarts.map { from =>
+      submit(executor)(scanQuoted(map(channel, from, Math.min(from + chunkSize, size)), dialect))
+    }
+    try {
+      val boundaries = ArrayBuffer(0L)
+      var state = CellStart
+      for (chunkIndex <- chunkStarts.indices) {
+        val scan = await(scans(chunkIndex))
+        if (chunkIndex > 0 && scan.rowStarts(state) >= 0) {
+          boundaries += chunkStarts(chunkIndex) + scan.rowStarts(state)
+        }
+        state = scan.endStates(state)
+      }
+      boundaries += size
+      boundaries.toArray
+    } finally {
+      scans.foreach(_.cancel(true))
+    }
+  }
+
+  /**
+    * State at the end of a chunk and index of its first row start (or -1), by state at the start of the chunk.
+    */
+  private class QuotedScan(val endStates: Array[Int], val rowStarts: Array[Int])
+
+  /**
+    * Runs the state machine of 'quotedChunkBoundaries' over the given chunk once per start state, all in one pass. As
+    * soon as two runs reach the same state (and either both or none of them found a row start), only one of them is
+    * continued.
+    */
+  private def scanQuoted(buffer: ByteBuffer, dialect: Dialect): QuotedScan = {
+    val delimiter = dialect.delimiter.toInt
+    val quote = dialect.quote
+    val states = Array.range(0, StateCount)
+    val rowStarts = Array.fill(StateCount)(-1)
+    val leaders = Array.range(0, StateCount) // the (lower) start state whose run is continued instead
+    var runCount = StateCount
+    val limit = buffer.limit()
+    var i = 0
+    while (i < limit) {
+      val b = buffer.get(i) & 0xFF
+      var s = 0
+      while (s < StateCount) {
+        if (leaders(s) == s) {
+          if (states(s) == RowEnd && rowStarts(s) < 0 && b != '\n' && b != '\r') {
+            rowStarts(s) = i
+          }
+          states(s) = nextState(states(s), b, delimiter, quote)
+          var t = 0
+          while (t < s) {
+            if (leaders(t) == t && states(t) == states(s) && (rowStarts(t) < 0) == (rowStarts(s) < 0)) {
+              leaders(s) = t
+              runCount -= 1
+              t = s
+            }
+            t += 1
+          }
+        }
+        s += 1
+      }
+      i += 1
+      if (runCount == 1 && rowStarts(0) >= 0) {
+        while (i < limit) {
+          states(0) = nextState(states(0), buffer.get(i) & 0xFF, delimiter, quote)
+          i += 1
+        }
+      }
+    }
+    // leaders are lower than the states following them, so they are resolved first
+    for (s <- 1 until StateCount if leaders(s) != s) {
+      states(s) = states(leaders(s))
+      if (rowStarts(s) < 0) {
+        rowStarts(s) = rowStarts(leaders(s))
+      }
+    }
+    new QuotedScan(states, rowStarts)
+  }
+
+  private def nextState(state: Int, b: Int, delimiter: Int, quote: Int): Int = {
+    if (state == Quoted) {
+      if (b == quote) QuoteInQuoted else Quoted
+    } else if (b == quote && state != Unquoted) {
+      Quoted
+    } else if (b == delimiter) {
+      CellStart
+    } else if (b == '\n' || b == '\r') {
+      RowEnd
+    } else {
+      Unquoted
+    }
+  }
+
+  private def map(channel: FileChannel, from: Long, to: Long): MappedByteBuffer = {
+    channel.map(MapMode.READ_ONLY, from, to - from)
+  }
+
+  private val CurrentThread: Executor = new Executor {
+    override def execute(command: Runnable): Unit = command.run()
+  }
+
+  private def submit[T](executor: Executor)(task: => T): Future[T] = {
+    val future = new FutureTask[T](new Callable[T] {
+      override def call(): T = task
+    })
+    executor.execute(future)
+    future
+  }
+
+  private def await[T](future: Future[T]): T = {
+    try {
+      future.get()
+    } catch {
+      case e: ExecutionException => e.getCause match {
+        case cause: RuntimeException => throw cause
+        case cause => throw new IllegalStateException(cause)
+      }
+    }
+  }
+
+  /**
+    * Waits for all chunks, translating row indexes in error messages from chunk-relative to file-relative ones.
+    */
+  private def awaitInOrder(futures: Seq[Future[Array[Column[_]]]]): Seq[Array[Column[_]]] = {
+    var rowCountBefore = 0
+    try {
+      futures.map { future =>
+        val chunk = try {
+          await(future)
+        } catch {
+          case e: InconsistentRowException => throw e.withRowIndexOffset(rowCountBefore)
+        }
+        rowCountBefore += (if (chunk.isEmpty) 0 else chunk(0).getRowCount)
+        chunk
+      }
+    } finally {
+      futures.foreach(_.cancel(true))
+    }
+  }
+
+  private def concatenate(chunks: Seq[Column[_]]): Column[_] = {
+    if (chunks.length == 1) {
+      return chunks.head
+    }
+    val rowCount = chunks.map(_.getRowCount).sum
+    chunks.head match {
+      case first: BooleanColumn =>
+        val builder = BooleanColumn.builder(first.getId).putAllMetaData(first.getMetaData)
+        chunks.foreach(chunk => builder.addAll(chunk.asInstanceOf[BooleanColumn]))
+        builder.build()
+      case first: CategoryColumn =>
+        val builder = CategoryColumn.builder(first.getId).putAllMetaData(first.getMetaData)
+        chunks.foreach(chunk => builder.addAll(chunk.asInstanceOf[CategoryColumn]))
+        builder.build()
+      case first: DoubleColumn =>
+        val builder = DoubleColumn.builder(first.getId, rowCount).putAllMetaData(first.getMetaData)
+        chunks.foreach(chunk => builder.addAll(chunk.asInstanceOf[DoubleColumn]))
+        builder.build()
+      case first: IntColumn =>
+        val builder = IntColumn.builder(first.getId, rowCount).putAllMetaData(first.getMetaData)
+        chunks.foreach(chunk => builder.addAll(chunk.asInstanceOf[IntColumn]))
+        builder.build()
+      case first: LongColumn =>
+        val builder = LongColumn.builder(first.getId, rowCount).putAllMetaData(first.getMetaData)
+        chunks.foreach(chunk => builder.addAll(chunk.asInstanceOf[LongColumn]))
+        builder.build()
+      case first: TimestampColumn =>
+        val builder = TimestampColumn.builder(first.getId).putAllMetaData(first.getMetaData)
+        chunks.foreach(chunk => builder.addAll(chunk.asInstanceOf[TimestampColumn]))
+        builder.build()
+      case first: StringColumn =>
+        val builder = StringColumn.builder(first.getId).putAllMetaData(first.getMetaData)
+        chunks.foreach(chunk => builder.addAll(chunk.asInstanceOf[StringColumn]))
+        builder.build()
+    }
   }
 
   private def createAcc(field: Field): Acc[_, _ <: Column[_]] = {
     val acc = field.getType match {
-      case ColumnType.BOOLEAN => new Acc[java.lang.Boolean, BooleanColumn](BooleanColumn.builder(BooleanColumnId.of(field.getName)), (s) => java.lang.Boolean.parseBoolean(s))
+      case ColumnType.BOOLEAN => new BooleanAcc(BooleanColumn.builder(BooleanColumnId.of(field.getName)))
       case ColumnType.CATEGORY => new Acc[java.lang.String, CategoryColumn](CategoryColumn.builder(CategoryColumnId.of(field.getName)), (s) => s)
-      case ColumnType.DOUBLE => new Acc[java.lang.Double, DoubleColumn](DoubleColumn.builder(DoubleColumnId.of(field.getName)), (s) => s.toDouble)
-      case ColumnType.INT => new Acc[java.lang.Integer, IntColumn](IntColumn.builder(IntColumnId.of(field.getName)), (s) => s.toInt)
-      case ColumnType.LONG => new Acc[java.lang.Long, LongColumn](LongColumn.builder(LongColumnId.of(field.getName)), (s) => s.toLong)
+      case ColumnType.DOUBLE => new DoubleAcc(DoubleColumn.builder(DoubleColumnId.of(field.getName)))
+      case ColumnType.INT => new IntAcc(IntColumn.builder(IntColumnId.of(field.getName)))
+      case ColumnType.LONG => new LongAcc(LongColumn.builder(LongColumnId.of(field.getName)))
       case ColumnType.TIMESTAMP => createTimestampAcc(field)
-      case _ => new Acc(StringColumn.builder(StringColumnId.of(field.getName)), (s) => s)
+      case _ => new StringAcc(StringColumn.builder(StringColumnId.of(field.getName)))
     }
     acc.putAllMetaData(field.getMetaData)
   }
@@ -179,7 +544,7 @@ object ScalaParserImpl {
         Instant.parse(s)
       }
     }
-    new Acc[Instant, TimestampColumn](builder, parseLogic)
+    new Acc[Instant, TimestampColumn](builder, parseLogic, emptyIsMissing = true)
   }
 
   implicit class VavrOptionConverter[A](val underlying: Option[A]) extends AnyVal {
@@ -188,17 +553,75 @@ object ScalaParserImpl {
 
 }
 
+/**
+  * Signals a row whose number of values does not match the column count. The row index starts at 1 and is relative to
+  * the parsed rows, i.e. it must be offset by any preceding (header or chunk) rows.
+  */
+private class InconsistentRowException(rowIndex: Int, valueCount: Int, columnCount: Int)
+  extends scala.IllegalArgumentException(InconsistentRowException.message(rowIndex, valueCount, columnCount)) {
+
+  def withRowIndexOffset(rowIndexOffset: Int): InconsistentRowException = {
+    new InconsistentRowException(rowIndex + rowIndexOffset, valueCount, columnCount)
+  }
+
+}
+
+private object InconsistentRowException {
+
+  def message(rowIndexForHumans: Int, valueCount: Int, columnCount: Int): String = {
+    val plural = if (valueCount > 1) "s" else ""
+    s"Row '$rowIndexForHumans' contains '$valueCount' value$plural (but should match column count '$columnCount')"
+  }
+
+}
+
 /**
   * Accumulates values by delegating to type-specific builders. The given 'parseLogic' abstracts the conversion from
-  * textual to type-specific values.
+  * textual to type-specific values. If 'emptyIsMissing' is set, empty cells are added as missing values (i.e. 'null').
+  * Cells are passed as ranges of a (reused) char buffer, so empty cells never allocate a string.
   */
-class Acc[V, C <: Column[_]](builder: Column.Builder[V, C], parseLogic: (String) => (V)) {
+class Acc[V, C <: Column[_]](builder: Column.Builder[V, C], parseLogic: (String) => (V), emptyIsMissing: Boolean = false) {
+
+  private var scratchBytes = new Array[Byte](64) // holds the bytes of the current cell (see 'scratch')
+
+  def addValue(chars: Array[Char], offset: Int, length: Int): Acc[V, C] = {
+    if (emptyIsMissing && length == 0) {
+      builder.add(null.asInstanceOf[V])
+    } else {
+      addChars(chars, offset, length)
+    }
+    this
+  }
 
-  def addValue(stringValue: String): Acc[V, C] = {
-    builder.add(parseLogic.apply(stringValue))
+  def addBytes(tokenizer: ByteTokenizer, cellIndex: Int, charset: Charset): Acc[V, C] = {
+    val length = tokenizer.cellLength(cellIndex)
+    if (emptyIsMissing && length == 0) {
+      builder.add(null.asInstanceOf[V])
+    } else {
+      val bytes = scratch(length)
+      addBytes(bytes, tokenizer.copyCell(cellIndex, bytes), charset)
+    }
     this
   }
 
+  protected def addChars(chars: Array[Char], offset: Int, length: Int): Unit = {
+    builder.add(parseLogic.apply(new String(chars, offset, length)))
+  }
+
+  protected def addBytes(bytes: Array[Byte], length: Int, charset: Charset): Unit = {
+    builder.add(parseLogic.apply(new String(bytes, 0, length, charset)))
+  }
+
+  /**
+    * Returns a buffer (reused across cells) which holds at least 'length' bytes.
+    */
+  protected def scratch(length: Int): Array[Byte] = {
+    if (scratchBytes.length < length) {
+      scratchBytes = new Array[Byte](Math.max(length, scratchBytes.length * 2))
+    }
+    scratchBytes
+  }
+
   def putAllMetaData(metaData: _root_.io.vavr.collection.Map[String, String]): Acc[V, C] = {
     builder.putAllMetaData(metaData)
     this
@@ -206,4 +629,102 @@ class Acc[V, C <: Column[_]](builder: Column.Builder[V, C], parseLogic: (String)
 
   def build(): C = builder.build()
 
-}
\ No newline at end of file
+}
+
+/**
+  * Copies UTF-8 encoded cells into the column as is, i.e. without decoding them to strings.
+  */
+class StringAcc(builder: StringColumn.Builder) extends Acc[String, StringColumn](builder, (s) => s) {
+
+  override protected def addBytes(bytes: Array[Byte], length: Int, charset: Charset): Unit = {
+    if (charset == StandardCharsets.UTF_8) {
+      builder.addUtf8(bytes, 0, length)
+    } else {
+      super.addBytes(bytes, length, charset)
+    }
+  }
+
+}
+
+/**
+  * Adds numeric (or boolean) cells to a primitive builder by parsing their ASCII bytes in place (see 'NumberParser').
+  * Chars are narrowed to bytes first (non-ASCII chars become an invalid byte). Cells outside the fast path are decoded
+  * to a string and passed on to 'parseLogic', i.e. the JDK.
+  */
+abstract class AsciiAcc[V, C <: Column[_]](builder: Column.Builder[V, C], parseLogic: (String) => (V))
+  extends Acc[V, C](builder, parseLogic, emptyIsMissing = true) {
+
+  override protected def addChars(chars: Array[Char], offset: Int, length: Int): Unit = {
+    val bytes = scratch(length)
+    var i = 0
+    while (i < length) {
+      val c = chars(offset + i)
+      bytes(i) = (if (c < 0x80) c else 0x7F).toByte
+      i += 1
+    }
+    if (!addAscii(bytes, length)) {
+      super.addChars(chars, offset, length)
+    }
+  }
+
+  override protected def addBytes(bytes: Array[Byte], length: Int, charset: Charset): Unit = {
+    if (!addAscii(bytes, length)) {
+      super.addBytes(bytes, length, charset)
+    }
+  }
+
+  /**
+    * Adds the value of the given bytes and returns true, or returns false if they are outside the fast path.
+    */
+  protected def addAscii(bytes: Array[Byte], length: Int): Boolean
+
+}
+
+class IntAcc(builder: IntColumn.Builder) extends AsciiAcc[java.lang.Integer, IntColumn](builder, (s) => s.toInt) {
+
+  override protected def addAscii(bytes: Array[Byte], length: Int): Boolean = {
+    val value = NumberParser.parseLong(bytes, 0, length) // 'NotParsed' is out of int range
+    val inRange = value >= Int.MinValue && value <= Int.MaxValue
+    if (inRange) {
+      builder.add(value.toInt)
+    }
+    inRange
+  }
+
+}
+
+class LongAcc(builder: LongColumn.Builder) extends AsciiAcc[java.lang.Long, LongColumn](builder, (s) => s.toLong) {
+
+  override protected def addAscii(bytes: Array[Byte], length: Int): Boolean = {
+    val value = NumberParser.parseLong(bytes, 0, length)
+    val parsed = value != NumberParser.NotParsed
+    if (parsed) {
+      builder.add(value)
+    }
+    parsed
+  }
+
+}
+
+class DoubleAcc(builder: DoubleColumn.Builder) extends AsciiAcc[java.lang.Double, DoubleColumn](builder, (s) => s.toDouble) {
+
+  override protected def addAscii(bytes: Array[Byte], length: Int): Boolean = {
+    val value = NumberParser.parseDouble(bytes, 0, length)
+    val parsed = !value.isNaN
+    if (parsed) {
+      builder.add(value)
+    }
+    parsed
+  }
+
+}
+
+class BooleanAcc(builder: BooleanColumn.Builder)
+  extends AsciiAcc[java.lang.Boolean, BooleanColumn](builder, (s) => java.lang.Boolean.parseBoolean(s)) {
+
+  override protected def addAscii(bytes: Array[Byte], length: Int): Boolean = {
+    builder.add(NumberParser.parseBoolean(bytes, 0, length))
+    true
+  }
+
+}
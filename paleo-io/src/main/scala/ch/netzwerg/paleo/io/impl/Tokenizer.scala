@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 Rahel Lüthy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ch.netzwerg.paleo.io.impl
+
+import java.io.Reader
+
+/**
+  * Splits delimited text into rows and cells in a single pass over a reusable character buffer, i.e. without allocating
+  * strings for lines or cells. Rows end at '\n', '\r', or "\r\n", empty rows are skipped. After 'nextRow()' returned
+  * true, the cells of the current row are available as offset/length pairs into 'chars' (valid until the next call).
+  *
+  * If a 'quote' char is given, cells starting with it are quoted as defined by RFC 4180, i.e. they may contain
+  * delimiters, line terminators, and (doubled) quotes. Quoted cells are unescaped in place, all other cells are scanned
+  * without looking at quotes.
+  */
+class Tokenizer(reader: Reader, delimiter: Char, quote: Int = Tokenizer.NoQuote, initialBufferSize: Int = Tokenizer.DefaultBufferSize) {
+
+  private var buffer = new Array[Char](initialBufferSize)
+  private var limit = 0 // number of chars read into the buffer
+  private var position = 0 // index of the next char to be tokenized
+  private var rowStart = 0 // index of the first char of the current row
+  private var cellStart = 0 // index of the first char of the current cell
+  private var endOfInput = false
+
+  private var cellStarts = new Array[Int](Tokenizer.DefaultCellCapacity)
+  private var cellEnds = new Array[Int](Tokenizer.DefaultCellCapacity)
+  private var count = 0
+
+  def chars: Array[Char] = buffer
+
+  def cellCount: Int = count
+
+  def cellOffset(cellIndex: Int): Int = cellStarts(cellIndex)
+
+  def cellLength(cellIndex: Int): Int = cellEnds(cellIndex) - cellStarts(cellIndex)
+
+  def cellString(cellIndex: Int): String = new String(buffer, cellOffset(cellIndex), cellLength(cellIndex))
+
+  def cellStrings(): Array[String] = Array.tabulate(count)(cellString)
+
+  /**
+    * Advances to the next non-empty row and returns false if there is none.
+    */
+  def nextRow(): Boolean = {
+    count = 0
+    // skip line terminators of the previous row (and empty rows)
+    var skipping = true
+    while (skipping) {
+      if (!hasNext) {
+        return false
+      }
+      val c = buffer(position)
+      if (c == '\n' || c == '\r') position += 1 else skipping = false
+    }
+    rowStart = position
+    while (true) {
+      cellStart = position
+      if (hasNext && buffer(position) == quote) {
+        addQuotedCell()
+      } else {
+        skipUnquoted()
+        addCell(cellStart, position)
+      }
+      if (!hasNext || buffer(position) != delimiter) {
+        return true
+      }
+      position += 1
+    }
+    false
+  }
+
+  /**
+    * Advances to the next delimiter or line terminator (or the end of the input).
+    */
+  private def skipUnquoted(): Unit = {
+    while (hasNext) {
+      val c = buffer(position)
+      if (c == delimiter || c == '\n' || c == '\r') {
+        return
+      }
+      position += 1
+    }
+  }
+
+  /**
+    * Adds the cell starting with a quote at the current position. Any chars between the closing quote and the next
+    * delimiter are kept (and an unterminated quote ends with the input).
+    */
+  private def addQuotedCell(): Unit = {
+    position += 1
+    cellStart = position
+    var escaped = false
+    while (hasNext) {
+      if (buffer(position) == quote) {
+        position += 1
+        if (hasNext && buffer(position) == quote) {
+          escaped = true
+          position += 1
+        } else {
+          if (hasNext && buffer(position) != delimiter && buffer(position) != '\n' && buffer(position) != '\r') {
+            skipUnquoted()
+            addUnescapedCell(cellStart, position)
+          } else if (escaped) {
+            addUnescapedCell(cellStart, position)
+          } else {
+            addCell(cellStart, position - 1)
+          }
+          return
+        }
+      } else {
+        position += 1
+      }
+    }
+    if (escaped) addUnescapedCell(cellStart, position) else addCell(cellStart, position)
+  }
+
+  /**
+    * Adds the given range of a quoted cell (without its opening quote) after removing its closing quote and replacing
+    * doubled quotes by single ones (in place).
+    */
+  private def addUnescapedCell(start: Int, end: Int): Unit = {
+    var read = start
+    var write = start
+    var quoted = true
+    while (read < end) {
+      val c = buffer(read)
+      if (quoted && c == quote) {
+        if (read + 1 < end && buffer(read + 1) == quote) {
+          buffer(write) = c
+          write += 1
+          read += 1
+        } else {
+          quoted = false
+        }
+      } else {
+        buffer(write) = c
+        write += 1
+      }
+      read += 1
+    }
+    addCell(start, write)
+  }
+
+  private def hasNext: Boolean = position < limit || fill()
+
+  private def addCell(start: Int, end: Int): Unit = {
+    if (count == cellStarts.length) {
+      cellStarts = java.util.Arrays.copyOf(cellStarts, count * 2)
+      cellEnds = java.util.Arrays.copyOf(cellEnds, count * 2)
+    }
+    cellStarts(count) = start
+    cellEnds(count) = end
+    count += 1
+  }
+
+  /**
+    * Moves the current row to the start of the buffer (growing the buffer if the row fills it entirely) and reads more
+    * chars behind it. Returns false at the end of the input.
+    */
+  private def fill(): Boolean = {
+    if (endOfInput) {
+      return false
+    }
+    val shift = rowStart
+    if (shift > 0) {
+      System.arraycopy(buffer, shift, buffer, 0, limit - shift)
+      var i = 0
+      while (i < count) {
+        cellStarts(i) -= shift
+        cellEnds(i) -= shift
+        i += 1
+      }
+      limit -= shift
+      position -= shift
+      cellStart -= shift
+      rowStart = 0
+    } else if (limit == buffer.length) {
+      buffer = java.util.Arrays.copyOf(buffer, buffer.length * 2)
+    }
+    var read = 0
+    while (read == 0) {
+      read = reader.read(buffer, limit, buffer.length - limit)
+    }
+    if (read < 0) {
+      endOfInput = true
+      false
+    } else {
+      limit += read
+      true
+    }
+  }
+
+}
+
+object Tokenizer {
+
+  val DefaultBufferSize: Int = 1 << 16
+  val DefaultCellCapacity: Int = 16
+  val NoQuote: Int = -1 // never equal to a char (or to an unsigned byte)
+
+}
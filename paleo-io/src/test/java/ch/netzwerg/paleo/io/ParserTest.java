@@ -17,6 +17,8 @@
 package ch.netzwerg.paleo.io;
 
 import ch.netzwerg.paleo.*;
+import ch.netzwerg.paleo.io.impl.Dialect;
+import ch.netzwerg.paleo.io.impl.ScalaParserImpl;
 import ch.netzwerg.paleo.schema.Schema;
 import io.vavr.Function2;
 import io.vavr.collection.Array;
@@ -26,14 +28,23 @@ import io.vavr.control.Option;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.Month;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 
 import static ch.netzwerg.paleo.ColumnIds.*;
@@ -153,6 +164,95 @@ public class ParserTest {
         assertMetaDataParsedCorrectly(df);
     }
 
+    @Test
+    public void tsvFromSchemaInParallel() throws IOException {
+        StringReader schemaReader = new StringReader(SCHEMA_FILE_BASED_TSV);
+        Schema schema = Schema.parseJson(schemaReader);
+        File resourceFolder = new File(ParserTest.class.getResource("/data.tsv").getPath()).getParentFile();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            DataFrame df = Parser.tsv(schema, resourceFolder, executor);
+            assertDataFrameParsedCorrectly(df);
+            assertMetaDataParsedCorrectly(df);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void tsvFromSchemaInChunks() throws IOException {
+        File file = File.createTempFile("paleo-", ".tsv");
+        file.deleteOnExit();
+        try (FileWriter writer = new FileWriter(file)) {
+            for (int i = 0; i < 1000; i++) {
+                String age = i % 5 == 0 ? "" : String.valueOf(i);
+                String gender = i < 900 ? "G" + (i % 3) : "Late";
+                writer.write("Name " + i + "\t" + age + "\t" + (i / 10.0) + "\t" + (i % 2 == 0) + "\t19750826050916." + (100 + i % 900) + "\t" + gender + (i % 4 == 0 ? "\r\n" : "\n"));
+            }
+        }
+        Schema schema = Schema.parseJson(new StringReader("{\n  \"dataFileName\": \"" + file.getName() + "\",\n" + FIELDS + "}"));
+        DataFrame expected = Parser.tsv(schema, file.getParentFile());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            DataFrame df = ScalaParserImpl.parseViaSchemaInChunks(schema, file.getParentFile(), Dialect.Tsv(), executor, 100);
+            assertEquals(1000, df.getRowCount());
+            StringColumnId nameId = df.getColumnId(0, ColumnType.STRING);
+            IntColumnId ageId = df.getColumnId(1, ColumnType.INT);
+            DoubleColumnId heightId = df.getColumnId(2, ColumnType.DOUBLE);
+            BooleanColumnId vegetarianId = df.getColumnId(3, ColumnType.BOOLEAN);
+            TimestampColumnId dateOfBirthId = df.getColumnId(4, ColumnType.TIMESTAMP);
+            CategoryColumnId genderId = df.getColumnId(5, ColumnType.CATEGORY);
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(expected.getValueAt(i, nameId), df.getValueAt(i, nameId));
+                assertEquals(expected.getColumn(ageId).isNull(i), df.getColumn(ageId).isNull(i));
+                assertEquals(expected.getValueAt(i, ageId), df.getValueAt(i, ageId));
+                assertEquals(expected.getValueAt(i, heightId), df.getValueAt(i, heightId), 0);
+                assertEquals(expected.getValueAt(i, vegetarianId), df.getValueAt(i, vegetarianId));
+                assertEquals(expected.getValueAt(i, dateOfBirthId), df.getValueAt(i, dateOfBirthId));
+                assertEquals(expected.getColumn(genderId).getCodeAt(i), df.getColumn(genderId).getCodeAt(i));
+            }
+            assertEquals(HashSet.of("G0", "G1", "G2", "Late"), df.getColumn(genderId).getCategories());
+
+            try (FileWriter writer = new FileWriter(file, true)) {
+                writer.write("Incomplete\t42\n");
+            }
+            try {
+                ScalaParserImpl.parseViaSchemaInChunks(schema, file.getParentFile(), Dialect.Tsv(), executor, 100);
+                fail("Exception expected");
+            } catch (IllegalArgumentException e) {
+                assertEquals("Row '1001' contains '2' values (but should match column count '6')", e.getMessage());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void tsvFromSchemaWithMultiByteCharacters() throws IOException {
+        File file = File.createTempFile("paleo-", ".tsv");
+        file.deleteOnExit();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write("Zoë Grüninger-Äschbacher\t\t1.5\ttrue\t19750826050916.123\tMännlich\n");
+            writer.write("\t7\t2.0\tfalse\t19750826050916.123\tWeiblich\r\n");
+            writer.write("日本語\t42\t\tfalse\t19750826050916.123\tMännlich");
+        }
+        Schema schema = Schema.parseJson(new StringReader("{\n  \"dataFileName\": \"" + file.getName() + "\",\n  \"charsetName\": \"UTF-8\",\n" + FIELDS + "}"));
+        DataFrame df = Parser.tsv(schema, file.getParentFile());
+        assertEquals(3, df.getRowCount());
+        StringColumnId nameId = df.getColumnId(0, ColumnType.STRING);
+        assertEquals("Zoë Grüninger-Äschbacher", df.getValueAt(0, nameId));
+        assertEquals("", df.getValueAt(1, nameId));
+        assertEquals("日本語", df.getValueAt(2, nameId));
+        IntColumnId ageId = df.getColumnId(1, ColumnType.INT);
+        assertTrue(df.getColumn(ageId).isNull(0));
+        assertEquals(42, df.getValueAt(2, ageId));
+        assertTrue(df.getColumn(df.getColumnId(2, ColumnType.DOUBLE)).isNull(2));
+        CategoryColumnId genderId = df.getColumnId(5, ColumnType.CATEGORY);
+        assertEquals(HashSet.of("Männlich", "Weiblich"), df.getColumn(genderId).getCategories());
+        assertEquals("Männlich", df.getValueAt(2, genderId));
+    }
+
     @Test
     public void tsvFromSchemaInconsistentColumnCount() throws IOException {
         StringReader schemaReader = new StringReader(SCHEMA_INCONSISTENT_COLUMN_COUNT);
@@ -178,6 +278,33 @@ public class ParserTest {
         assertEquals(3, df.getRowCount());
     }
 
+    @Test
+    public void tsvWithMissingValues() {
+        String withMissingValues =
+                "Name\tAge\tHeight\tVegetarian\tDate Of Birth\n" +
+                        "String\tInt\tDouble\tBoolean\tTimestamp\n" +
+                        "Ada\t\t1.74\ttrue\t\n" +
+                        "Homer\t99\t\t\t2006-01-08T05:09:16Z\n";
+        DataFrame df = Parser.tsv(new StringReader(withMissingValues));
+        assertEquals(2, df.getRowCount());
+
+        IntColumn ageColumn = df.getColumn(df.getColumnId(1, ColumnType.INT));
+        assertTrue(ageColumn.isNull(0));
+        assertEquals(99, ageColumn.getValueAt(1));
+
+        DoubleColumn heightColumn = df.getColumn(df.getColumnId(2, ColumnType.DOUBLE));
+        assertTrue(heightColumn.isNull(1));
+        assertEquals(1, heightColumn.getNullCount());
+
+        BooleanColumn vegetarianColumn = df.getColumn(df.getColumnId(3, ColumnType.BOOLEAN));
+        assertTrue(vegetarianColumn.getValueAt(0));
+        assertTrue(vegetarianColumn.isNull(1));
+
+        TimestampColumn dateOfBirthColumn = df.getColumn(df.getColumnId(4, ColumnType.TIMESTAMP));
+        assertNull(dateOfBirthColumn.getValueAt(0));
+        assertEquals(Instant.parse("2006-01-08T05:09:16Z"), dateOfBirthColumn.getValueAt(1));
+    }
+
     @Test
     public void tsvOffsetRowIndexInErrorMessage() {
         String invalid = "First\tLast\nString\tString\nBarack\n";
@@ -188,6 +315,88 @@ public class ParserTest {
         }
     }
 
+    @Test
+    public void tsvWithNumbers() throws IOException {
+        String[] ints = {"0", "-0", "+7", "007", "2147483647", "-2147483648", "\u0661\u0662", "-1", "42"};
+        String[] longs = {"9223372036854775807", "-9223372036854775808", "123456789012345678", "-1", "+3", "0", "\u0661", "1", "2"};
+        String[] doubles = {"0.1", "-0.0", "1e22", "1e23", "123.456e-5", "9007199254740993", "3.141592653589793238", "NaN", "0x1p3"};
+        String[] booleans = {"TRUE", "tRuE", "false", "yes", "t", "true", "True", "no", "truee"};
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < ints.length; i++) {
+            rows.append(ints[i]).append('\t').append(longs[i]).append('\t').append(doubles[i]).append('\t').append(booleans[i]).append('\n');
+        }
+        String[] moreDoubles = {"-Infinity", "1.", ".5", "4.9e-324", "1E+2", "2.5d", "-12.75e1", "1e-22", "123456789012345678e-3"};
+
+        File file = File.createTempFile("paleo-", ".tsv");
+        file.deleteOnExit();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(rows.toString());
+            for (String value : moreDoubles) {
+                writer.write("1\t1\t" + value + "\ttrue\n");
+            }
+        }
+        String fields = "  \"fields\": [{\"name\": \"Int\", \"type\": \"Int\"}, {\"name\": \"Long\", \"type\": \"Long\"}, " +
+                "{\"name\": \"Double\", \"type\": \"Double\"}, {\"name\": \"Boolean\", \"type\": \"Boolean\"}]\n";
+        Schema schema = Schema.parseJson(new StringReader("{\n  \"dataFileName\": \"" + file.getName() + "\",\n  \"charsetName\": \"UTF-8\",\n" + fields + "}"));
+        DataFrame fromBytes = Parser.tsv(schema, file.getParentFile());
+        DataFrame fromChars = Parser.tsv(new StringReader("Int\tLong\tDouble\tBoolean\nInt\tLong\tDouble\tBoolean\n" + rows));
+
+        for (DataFrame df : asList(fromBytes, fromChars)) {
+            IntColumn intColumn = df.getColumn(df.getColumnId(0, ColumnType.INT));
+            LongColumn longColumn = df.getColumn(df.getColumnId(1, ColumnType.LONG));
+            DoubleColumn doubleColumn = df.getColumn(df.getColumnId(2, ColumnType.DOUBLE));
+            BooleanColumn booleanColumn = df.getColumn(df.getColumnId(3, ColumnType.BOOLEAN));
+            for (int i = 0; i < ints.length; i++) {
+                assertEquals(Integer.parseInt(ints[i]), intColumn.getValueAt(i));
+                assertEquals(Long.parseLong(longs[i]), longColumn.getValueAt(i));
+                assertEquals(Double.doubleToLongBits(Double.parseDouble(doubles[i])), Double.doubleToLongBits(doubleColumn.getValueAt(i)));
+                assertEquals(Boolean.parseBoolean(booleans[i]), booleanColumn.getValueAt(i));
+            }
+        }
+        DoubleColumn doubleColumn = fromBytes.getColumn(fromBytes.getColumnId(2, ColumnType.DOUBLE));
+        for (int i = 0; i < moreDoubles.length; i++) {
+            assertEquals(Double.doubleToLongBits(Double.parseDouble(moreDoubles[i])), Double.doubleToLongBits(doubleColumn.getValueAt(ints.length + i)));
+        }
+
+        try {
+            Parser.tsv(new StringReader("Int\nInt\n2147483648\n"));
+            fail("Exception expected");
+        } catch (NumberFormatException e) {
+            assertEquals("For input string: \"2147483648\"", e.getMessage());
+        }
+    }
+
+    @Test
+    public void tsvWithMixedLineEndings() {
+        String contents = "Name\tAge\r\nString\tInt\r\n\r\nAda\t42\rHomer\t\n\n\nHillary\t67";
+        DataFrame df = Parser.tsv(new StringReader(contents));
+        assertEquals(3, df.getRowCount());
+        StringColumn nameColumn = df.getColumn(df.getColumnId(0, ColumnType.STRING));
+        assertEquals(Array.of("Ada", "Homer", "Hillary"), nameColumn.getValues());
+        IntColumn ageColumn = df.getColumn(df.getColumnId(1, ColumnType.INT));
+        assertTrue(ageColumn.isNull(1));
+        assertEquals(67, ageColumn.getValueAt(2));
+    }
+
+    @Test
+    public void tsvWithRowsSpanningBufferBoundaries() {
+        StringBuilder contents = new StringBuilder("Name\tIndex\nString\tInt\n");
+        String longName = String.join("", java.util.Collections.nCopies(100_000, "x")); // longer than the buffer
+        contents.append(longName).append("\t0\n");
+        for (int i = 1; i < 20_000; i++) {
+            contents.append("Row ").append(i).append('\t').append(i).append('\n');
+        }
+        DataFrame df = Parser.tsv(new StringReader(contents.toString()));
+        assertEquals(20_000, df.getRowCount());
+        StringColumnId nameColumnId = df.getColumnId(0, ColumnType.STRING);
+        IntColumnId indexColumnId = df.getColumnId(1, ColumnType.INT);
+        assertEquals(longName, df.getValueAt(0, nameColumnId));
+        for (int i = 1; i < 20_000; i++) {
+            assertEquals("Row " + i, df.getValueAt(i, nameColumnId));
+            assertEquals(i, df.getValueAt(i, indexColumnId));
+        }
+    }
+
     @Test
     public void tsvFromSchemaWithCharset() throws IOException {
         assertSchemaWithCharset(Parser::tsv);
@@ -240,6 +449,119 @@ public class ParserTest {
         assertEquals(3, df.getRowCount());
     }
 
+    @Test
+    public void csvWithQuotedValues() {
+        String withQuotedValues =
+                "Name,\"Comment\",Age\n" +
+                        "String,String,Int\n" +
+                        "\"Doe, John\",\"said \"\"hi\"\"\",\"42\"\n" +
+                        "Ada,\"multi\nline\r\ncomment\",\"\"\n" +
+                        "\"\",\"trailing\"text,7\n" +
+                        "unquoted\"quote,\"\"\"\",\"1\"";
+        DataFrame df = Parser.csv(new StringReader(withQuotedValues));
+        assertEquals(4, df.getRowCount());
+        assertEquals("Comment", df.getColumn(df.getColumnId(1, ColumnType.STRING)).getId().getName());
+        StringColumn name = df.getColumn(df.getColumnId(0, ColumnType.STRING));
+        StringColumn comment = df.getColumn(df.getColumnId(1, ColumnType.STRING));
+        IntColumn age = df.getColumn(df.getColumnId(2, ColumnType.INT));
+        assertEquals(asList("Doe, John", "Ada", "", "unquoted\"quote"), name.valueStream().toJavaList());
+        assertEquals(asList("said \"hi\"", "multi\nline\r\ncomment", "trailingtext", "\""), comment.valueStream().toJavaList());
+        assertEquals(42, age.getValueAt(0));
+        assertTrue(age.isNull(1));
+        assertEquals(7, age.getValueAt(2));
+        assertEquals(1, age.getValueAt(3));
+
+        DataFrame unterminated = Parser.csv(new StringReader("Name\nString\n\"open\nrest,\"\"\n"));
+        assertEquals(1, unterminated.getRowCount());
+        assertEquals("open\nrest,\"\n", unterminated.getValueAt(0, unterminated.getColumnId(0, ColumnType.STRING)));
+    }
+
+    @Test
+    public void csvWithCustomDialect() {
+        String withCustomDialect =
+                "Name;Comment\n" +
+                        "String;String\n" +
+                        "'Doe; John';'it''s \"quoted\"'\n";
+        DataFrame df = Parser.csv(new StringReader(withCustomDialect), ';', '\'');
+        assertEquals("Doe; John", df.getValueAt(0, df.getColumnId(0, ColumnType.STRING)));
+        assertEquals("it's \"quoted\"", df.getValueAt(0, df.getColumnId(1, ColumnType.STRING)));
+        try {
+            Parser.csv(new StringReader(withCustomDialect), ';', ';');
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("requirement failed: Quote must differ from delimiter", e.getMessage());
+        }
+    }
+
+    @Test
+    public void csvFromSchemaWithQuotedValues() throws IOException {
+        File file = File.createTempFile("paleo-", ".csv");
+        file.deleteOnExit();
+        List<String> expectedNames = new ArrayList<>();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 300; i++) {
+                if (i % 3 == 0) {
+                    writer.write("\"Line " + i + "\nnext, \"\"quoted\"\"\"");
+                    expectedNames.add("Line " + i + "\nnext, \"quoted\"");
+                } else if (i % 3 == 1) {
+                    writer.write("\"Plain \u00e9 " + i + "\"");
+                    expectedNames.add("Plain \u00e9 " + i);
+                } else {
+                    writer.write("Bare " + i);
+                    expectedNames.add("Bare " + i);
+                }
+                writer.write(",\"" + i + "\"\r\n");
+            }
+        }
+        String fields = "  \"fields\": [{\"name\": \"Name\"}, {\"name\": \"Index\", \"type\": \"Int\"}]\n";
+        Schema schema = Schema.parseJson(new StringReader("{\n  \"dataFileName\": \"" + file.getName() + "\",\n  \"charsetName\": \"UTF-8\",\n" + fields + "}"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (DataFrame df : asList(Parser.csv(schema, file.getParentFile()), ScalaParserImpl.parseViaSchemaInChunks(schema, file.getParentFile(), Dialect.Csv(), executor, 50))) {
+                assertEquals(300, df.getRowCount());
+                assertEquals(expectedNames, df.getColumn(df.getColumnId(0, ColumnType.STRING)).valueStream().toJavaList());
+                IntColumn index = df.getColumn(df.getColumnId(1, ColumnType.INT));
+                for (int i = 0; i < 300; i++) {
+                    assertEquals(i, index.getValueAt(i));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void csvFromSchemaWithQuoteInUnquotedCell() throws IOException {
+        File file = File.createTempFile("paleo-", ".csv");
+        file.deleteOnExit();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write("pipe,12\" long\n"); // a quote within an unquoted cell is plain text
+            for (int i = 0; i < 2000; i++) {
+                writer.write("\"Line " + i + "\nnext\"," + i + "\n");
+            }
+            writer.write("last,\"\"\n");
+        }
+        String fields = "  \"fields\": [{\"name\": \"Name\"}, {\"name\": \"Comment\"}]\n";
+        Schema schema = Schema.parseJson(new StringReader("{\n  \"dataFileName\": \"" + file.getName() + "\",\n  \"charsetName\": \"UTF-8\",\n" + fields + "}"));
+
+        DataFrame sequential = Parser.csv(schema, file.getParentFile());
+        assertEquals(2002, sequential.getRowCount());
+        StringColumnId nameId = sequential.getColumnId(0, ColumnType.STRING);
+        StringColumnId commentId = sequential.getColumnId(1, ColumnType.STRING);
+        assertEquals("12\" long", sequential.getValueAt(0, commentId));
+        assertEquals("Line 1999\nnext", sequential.getValueAt(2000, nameId));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            DataFrame parallel = ScalaParserImpl.parseViaSchemaInChunks(schema, file.getParentFile(), Dialect.Csv(), executor, 1024);
+            assertEquals(sequential.getColumn(nameId).getValues(), parallel.getColumn(nameId).getValues());
+            assertEquals(sequential.getColumn(commentId).getValues(), parallel.getColumn(commentId).getValues());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void csvFromSchemaWithCharset() throws IOException {
         assertSchemaWithCharset(Parser::csv);